@@ -0,0 +1,146 @@
+package com.beemdevelopment.aegis.importers;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.beemdevelopment.aegis.util.IOUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures how long it takes to read and convert the export of every supported app. Unlike
+ * the JMH benchmarks in the benchmark module, these run on a device, because most importers
+ * depend on the framework's SQLite or XML parsers. The exports are the same ones that
+ * DatabaseImporterTest checks the results of. Encrypted exports are decrypted as part of the
+ * measurement, so the results of those are dominated by the key derivation of the app.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class DatabaseImporterBenchmark {
+    @Rule
+    public BenchmarkRule _benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void importPlainText() throws IOException, DatabaseImporterException {
+        benchmarkImport(GoogleAuthUriImporter.class, "plain.txt");
+    }
+
+    @Test
+    public void importAegis() throws IOException, DatabaseImporterException {
+        benchmarkImport(AegisImporter.class, "aegis_plain.json");
+    }
+
+    @Test
+    public void importAndOtp() throws IOException, DatabaseImporterException {
+        benchmarkImport(AndOtpImporter.class, "andotp_plain.json");
+    }
+
+    @Test
+    public void importAuthenticatorPlus() throws IOException, DatabaseImporterException {
+        benchmarkImport(AuthenticatorPlusImporter.class, "authenticator_plus.zip", false, state -> {
+            return ((AuthenticatorPlusImporter.EncryptedState) state).decrypt("testtesttest".toCharArray());
+        });
+    }
+
+    @Test
+    public void importAuthy() throws IOException, DatabaseImporterException {
+        benchmarkImport(AuthyImporter.class, "authy_plain.xml");
+    }
+
+    @Test
+    public void importBitwardenJson() throws IOException, DatabaseImporterException {
+        benchmarkImport(BitwardenImporter.class, "bitwarden.json");
+    }
+
+    @Test
+    public void importBitwardenCsv() throws IOException, DatabaseImporterException {
+        benchmarkImport(BitwardenImporter.class, "bitwarden.csv");
+    }
+
+    @Test
+    public void importDuo() throws IOException, DatabaseImporterException {
+        benchmarkImport(DuoImporter.class, "duo.json");
+    }
+
+    @Test
+    public void importFreeOtp() throws IOException, DatabaseImporterException {
+        benchmarkImport(FreeOtpImporter.class, "freeotp.xml");
+    }
+
+    @Test
+    public void importFreeOtpPlus() throws IOException, DatabaseImporterException {
+        benchmarkImport(FreeOtpPlusImporter.class, "freeotp_plus.json");
+    }
+
+    @Test
+    public void importGoogleAuthenticator() throws IOException, DatabaseImporterException {
+        benchmarkImport(GoogleAuthImporter.class, "google_authenticator.sqlite");
+    }
+
+    @Test
+    public void importMicrosoftAuthenticator() throws IOException, DatabaseImporterException {
+        benchmarkImport(MicrosoftAuthImporter.class, "microsoft_authenticator.sqlite");
+    }
+
+    @Test
+    public void importSteam() throws IOException, DatabaseImporterException {
+        benchmarkImport(SteamImporter.class, "steam.json");
+    }
+
+    @Test
+    public void importTotpAuthenticator() throws IOException, DatabaseImporterException {
+        benchmarkImport(TotpAuthenticatorImporter.class, "totp_authenticator_internal.xml", true, null);
+    }
+
+    @Test
+    public void importTwoFas() throws IOException, DatabaseImporterException {
+        benchmarkImport(TwoFASImporter.class, "2fas_authenticator_plain.2fas");
+    }
+
+    @Test
+    public void importWinAuth() throws IOException, DatabaseImporterException {
+        benchmarkImport(WinAuthImporter.class, "plain.txt");
+    }
+
+    private void benchmarkImport(Class<? extends DatabaseImporter> type, String resName)
+            throws IOException, DatabaseImporterException {
+        benchmarkImport(type, resName, false, null);
+    }
+
+    private void benchmarkImport(Class<? extends DatabaseImporter> type, String resName, boolean isInternal, @Nullable Decryptor decryptor)
+            throws IOException, DatabaseImporterException {
+        Context context = ApplicationProvider.getApplicationContext();
+        DatabaseImporter importer = DatabaseImporter.create(context, type);
+
+        // the export is read into memory up front, so that only the importer is measured
+        byte[] bytes;
+        try (InputStream stream = getClass().getResourceAsStream(resName)) {
+            bytes = IOUtils.readAll(stream);
+        }
+
+        BenchmarkState state = _benchmarkRule.getState();
+        while (state.keepRunning()) {
+            DatabaseImporter.State importerState = importer.read(new ByteArrayInputStream(bytes), isInternal);
+            if (decryptor != null) {
+                importerState = decryptor.decrypt(importerState);
+            }
+            importerState.convert();
+        }
+    }
+
+    private interface Decryptor {
+        DatabaseImporter.State decrypt(DatabaseImporter.State encryptedState) throws DatabaseImporterException;
+    }
+}
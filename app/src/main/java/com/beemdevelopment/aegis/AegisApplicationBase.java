@@ -11,6 +11,8 @@ import android.content.pm.ShortcutInfo;
 import android.content.pm.ShortcutManager;
 import android.graphics.drawable.Icon;
 import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
@@ -19,6 +21,8 @@ import androidx.lifecycle.LifecycleEventObserver;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.ProcessLifecycleOwner;
 
+import com.beemdevelopment.aegis.helpers.TextDrawableHelper;
+import com.beemdevelopment.aegis.icons.IconPackManager;
 import com.beemdevelopment.aegis.ui.MainActivity;
 import com.beemdevelopment.aegis.util.IOUtils;
 import com.beemdevelopment.aegis.vault.VaultManager;
@@ -34,6 +38,7 @@ import dagger.hilt.android.EarlyEntryPoints;
 import dagger.hilt.components.SingletonComponent;
 
 public abstract class AegisApplicationBase extends Application {
+    private static final String TAG = AegisApplicationBase.class.getSimpleName();
     private static final String CODE_LOCK_STATUS_ID = "lock_status_channel";
     private static final String CODE_LOCK_VAULT_ACTION = "lock_vault";
 
@@ -47,7 +52,15 @@ public abstract class AegisApplicationBase extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
-        _vaultManager = EarlyEntryPoints.get(this, EntryPoint.class).getVaultManager();
+        long start = SystemClock.elapsedRealtime();
+
+        // both managers start loading their data on a background thread as soon as they're created
+        EntryPoint entryPoint = EarlyEntryPoints.get(this, EntryPoint.class);
+        _vaultManager = entryPoint.getVaultManager();
+        entryPoint.getIconPackManager();
+
+        // the letter avatars are generated from the names and issuers of the entries
+        _vaultManager.registerLockListener(userInitiated -> TextDrawableHelper.clearCache());
 
         Iconics.init(this);
         Iconics.registerFont(new MaterialDesignIconic());
@@ -72,6 +85,8 @@ public abstract class AegisApplicationBase extends Application {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             initNotificationChannels();
         }
+
+        Log.i(TAG, String.format("Application created in %d ms", SystemClock.elapsedRealtime() - start));
     }
 
     @RequiresApi(api = Build.VERSION_CODES.N_MR1)
@@ -134,5 +149,7 @@ public abstract class AegisApplicationBase extends Application {
     @InstallIn(SingletonComponent.class)
     interface EntryPoint {
         VaultManager getVaultManager();
+
+        IconPackManager getIconPackManager();
     }
 }
@@ -10,6 +10,7 @@ import android.util.Log;
 
 import com.beemdevelopment.aegis.util.IOUtils;
 import com.beemdevelopment.aegis.vault.VaultFile;
+import com.beemdevelopment.aegis.vault.VaultFileException;
 import com.beemdevelopment.aegis.vault.VaultRepository;
 import com.beemdevelopment.aegis.vault.VaultRepositoryException;
 
@@ -57,7 +58,7 @@ public class AegisBackupAgent extends BackupAgent {
             VaultFile vaultFile = VaultRepository.readVaultFile(this);
             byte[] bytes = vaultFile.exportable().toBytes();
             outputStream.write(bytes);
-        } catch (VaultRepositoryException | IOException e) {
+        } catch (VaultRepositoryException | VaultFileException | IOException e) {
             Log.e(TAG, String.format("onFullBackup() failed: %s", e));
             deleteBackupDir();
             throw new IOException(e);
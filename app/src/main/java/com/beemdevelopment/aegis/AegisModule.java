@@ -28,6 +28,12 @@ public class AegisModule {
         return new VaultManager(context);
     }
 
+    @Provides
+    @Singleton
+    public static UsageCountStore provideUsageCountStore(@ApplicationContext Context context) {
+        return new UsageCountStore(context);
+    }
+
     @Provides
     public static Preferences providePreferences(@ApplicationContext Context context) {
         return new Preferences(context);
@@ -182,23 +182,18 @@ public class Preferences {
         _prefs.edit().putInt("pref_current_view_mode", viewMode.ordinal()).apply();
     }
 
-    public Integer getUsageCount(UUID uuid) {
-        Integer usageCount = getUsageCounts().get(uuid);
-
-        return usageCount != null ? usageCount : 0;
-    }
-
-    public void resetUsageCount(UUID uuid) {
-        Map<UUID, Integer> usageCounts = getUsageCounts();
-        usageCounts.put(uuid, 0);
-
-        setUsageCount(usageCounts);
-    }
-
+    /**
+     * Removes the usage counts that older versions of the app kept in the preferences.
+     * They're kept in UsageCountStore now.
+     */
     public void clearUsageCount() {
         _prefs.edit().remove("pref_usage_count").apply();
     }
 
+    /**
+     * Returns the usage counts that older versions of the app kept in the preferences.
+     * This is only used to migrate them to UsageCountStore.
+     */
     public Map<UUID, Integer> getUsageCounts() {
         Map<UUID, Integer> usageCounts = new HashMap<>();
         String usageCount = _prefs.getString("pref_usage_count", "");
@@ -214,22 +209,6 @@ public class Preferences {
         return usageCounts;
     }
 
-    public void setUsageCount(Map<UUID, Integer> usageCounts) {
-        JSONArray usageCountJson = new JSONArray();
-        for (Map.Entry<UUID, Integer> entry : usageCounts.entrySet()) {
-            JSONObject entryJson = new JSONObject();
-            try {
-                entryJson.put("uuid", entry.getKey());
-                entryJson.put("count", entry.getValue());
-                usageCountJson.put(entryJson);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-        }
-
-        _prefs.edit().putString("pref_usage_count", usageCountJson.toString()).apply();
-    }
-
     public int getTimeout() {
         return _prefs.getInt("pref_timeout", -1);
     }
@@ -0,0 +1,261 @@
+package com.beemdevelopment.aegis;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track of how often every entry has been used, and when it was last used. The
+ * usage counts are loaded into memory on a background thread as soon as the store is
+ * created, so that the entry list doesn't have to wait for the file to be read. Every change is
+ * appended to a small binary file as a single fixed-size record, on a background thread.
+ * The file is rewritten with only the latest record of every entry once it has
+ * accumulated enough outdated records, or when entries that no longer exist are dropped
+ * (see retain). Rewrites go through a temporary file that replaces the original one, so
+ * that appends and rewrites always end up in the same file. An append that was cut short
+ * leaves an incomplete record at the end, which is dropped by rewriting the file on the
+ * next load.
+ */
+public class UsageCountStore {
+    private static final String TAG = UsageCountStore.class.getSimpleName();
+    private static final String FILENAME = "usage_counts.bin";
+
+    private static final int MAGIC = 0x41554331; // "AUC1"
+    private static final int HEADER_SIZE = 4;
+    // UUID (16 bytes), count (4 bytes), time of last use (8 bytes)
+    private static final int RECORD_SIZE = 28;
+    // the count of a record that marks the usage count of an entry as removed
+    private static final int REMOVED = -1;
+    // the number of outdated records that is tolerated before the file is compacted
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private final Context _context;
+    private final File _file;
+    private final Executor _executor;
+
+    private Map<UUID, Usage> _usages;
+    // the number of records in the file
+    private int _recordCount;
+
+    public UsageCountStore(Context context) {
+        this(context, Executors.newSingleThreadExecutor());
+    }
+
+    UsageCountStore(Context context, Executor executor) {
+        _context = context.getApplicationContext();
+        _file = new File(_context.getFilesDir(), FILENAME);
+        _executor = executor;
+        _executor.execute(this::warmUp);
+    }
+
+    private synchronized void warmUp() {
+        getUsages();
+    }
+
+    public synchronized int getUsageCount(UUID uuid) {
+        Usage usage = getUsages().get(uuid);
+        return usage != null ? usage._count : 0;
+    }
+
+    /**
+     * Returns the time the entry with the given UUID was last used at, in milliseconds since
+     * the epoch, or 0 if it hasn't been used yet.
+     */
+    public synchronized long getLastUsed(UUID uuid) {
+        Usage usage = getUsages().get(uuid);
+        return usage != null ? usage._lastUsed : 0;
+    }
+
+    public synchronized void incrementUsageCount(UUID uuid) {
+        Usage usage = getUsages().get(uuid);
+        int count = usage != null ? usage._count + 1 : 1;
+        usage = new Usage(count, System.currentTimeMillis());
+        getUsages().put(uuid, usage);
+        appendRecord(uuid, usage);
+    }
+
+    public synchronized void resetUsageCount(UUID uuid) {
+        if (getUsages().remove(uuid) != null) {
+            appendRecord(uuid, new Usage(REMOVED, 0));
+        }
+    }
+
+    public synchronized void clear() {
+        getUsages().clear();
+        compact();
+    }
+
+    /**
+     * Drops the usage counts of all entries that aren't in the given collection of UUIDs.
+     */
+    public synchronized void retain(Collection<UUID> uuids) {
+        Set<UUID> retained = new HashSet<>(uuids);
+        if (getUsages().keySet().retainAll(retained)) {
+            compact();
+        }
+    }
+
+    private Map<UUID, Usage> getUsages() {
+        if (_usages == null) {
+            _usages = new HashMap<>();
+            switch (load()) {
+                case LOADED:
+                    // an incomplete record at the end would corrupt any record appended after it
+                    long expectedLength = HEADER_SIZE + (long) _recordCount * RECORD_SIZE;
+                    if (_file.length() != expectedLength
+                            || _recordCount - _usages.size() > COMPACT_THRESHOLD) {
+                        compact();
+                    }
+                    break;
+                case MISSING:
+                    migrate();
+                    break;
+                case CORRUPT:
+                    _usages.clear();
+                    compact();
+                    break;
+            }
+        }
+
+        return _usages;
+    }
+
+    /**
+     * Loads the usage counts from the file. This leaves any repairs up to the caller.
+     */
+    private LoadResult load() {
+        try (DataInputStream inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+            if (inStream.readInt() != MAGIC) {
+                throw new IOException("Bad magic");
+            }
+
+            while (true) {
+                UUID uuid;
+                Usage usage;
+                try {
+                    uuid = new UUID(inStream.readLong(), inStream.readLong());
+                    usage = new Usage(inStream.readInt(), inStream.readLong());
+                } catch (EOFException e) {
+                    // an incomplete record at the end is the result of an interrupted write
+                    break;
+                }
+
+                _recordCount++;
+                if (usage._count == REMOVED) {
+                    _usages.remove(uuid);
+                } else {
+                    _usages.put(uuid, usage);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return LoadResult.MISSING;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read the usage counts", e);
+            return LoadResult.CORRUPT;
+        }
+
+        return LoadResult.LOADED;
+    }
+
+    /**
+     * Imports the usage counts that older versions of the app kept in the preferences.
+     */
+    private void migrate() {
+        Preferences prefs = new Preferences(_context);
+        for (Map.Entry<UUID, Integer> entry : prefs.getUsageCounts().entrySet()) {
+            if (entry.getValue() > 0) {
+                _usages.put(entry.getKey(), new Usage(entry.getValue(), 0));
+            }
+        }
+
+        compact();
+        prefs.clearUsageCount();
+    }
+
+    private void appendRecord(UUID uuid, Usage usage) {
+        _recordCount++;
+        if (_recordCount - _usages.size() > COMPACT_THRESHOLD) {
+            compact();
+            return;
+        }
+
+        _executor.execute(() -> {
+            try (DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file, true)))) {
+                writeRecord(outStream, uuid, usage);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to write a usage count", e);
+            }
+        });
+    }
+
+    /**
+     * Rewrites the file with a single record for every entry.
+     */
+    private void compact() {
+        Map<UUID, Usage> records = new HashMap<>(_usages);
+        _recordCount = records.size();
+
+        _executor.execute(() -> {
+            File tempFile = new File(_file.getPath() + ".new");
+            try {
+                try (FileOutputStream fileStream = new FileOutputStream(tempFile)) {
+                    DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(fileStream));
+                    outStream.writeInt(MAGIC);
+                    for (Map.Entry<UUID, Usage> record : records.entrySet()) {
+                        writeRecord(outStream, record.getKey(), record.getValue());
+                    }
+                    outStream.flush();
+                    fileStream.getFD().sync();
+                }
+
+                if (!tempFile.renameTo(_file)) {
+                    throw new IOException(String.format("Unable to rename %s", tempFile));
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to write the usage counts", e);
+                tempFile.delete();
+            }
+        });
+    }
+
+    private static void writeRecord(DataOutputStream outStream, UUID uuid, Usage usage) throws IOException {
+        outStream.writeLong(uuid.getMostSignificantBits());
+        outStream.writeLong(uuid.getLeastSignificantBits());
+        outStream.writeInt(usage._count);
+        outStream.writeLong(usage._lastUsed);
+    }
+
+    private enum LoadResult {
+        LOADED,
+        MISSING,
+        CORRUPT
+    }
+
+    private static class Usage {
+        private final int _count;
+        private final long _lastUsed;
+
+        private Usage(int count, long lastUsed) {
+            _count = count;
+            _lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.beemdevelopment.aegis.crypto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+
+/**
+ * An OutputStream that encrypts everything written to it with the given AEAD cipher
+ * and passes the ciphertext on to the underlying stream. Like CryptoUtils.encrypt, the
+ * tag is split off from the ciphertext, so it never reaches the underlying stream. It's
+ * available through getParams() after the stream has been closed.
+ */
+public class CryptOutputStream extends OutputStream {
+    private final OutputStream _out;
+    private final Cipher _cipher;
+
+    // the last bytes of the ciphertext are held back until we know whether they're the tag
+    private final byte[] _tail = new byte[CryptoUtils.CRYPTO_AEAD_TAG_SIZE];
+    private int _tailLen;
+
+    private CryptParameters _params;
+
+    public CryptOutputStream(OutputStream out, Cipher cipher) {
+        _out = out;
+        _cipher = cipher;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (_params != null) {
+            throw new IOException("Stream is closed");
+        }
+
+        byte[] output = _cipher.update(b, off, len);
+        if (output != null) {
+            writeCiphertext(output);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_params != null) {
+            return;
+        }
+
+        try {
+            writeCiphertext(_cipher.doFinal());
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
+            throw new IOException(e);
+        }
+
+        if (_tailLen != _tail.length) {
+            throw new IOException("Ciphertext is too short to contain a tag");
+        }
+
+        _params = new CryptParameters(_cipher.getIV(), _tail.clone());
+        _out.close();
+    }
+
+    public byte[] getNonce() {
+        return _cipher.getIV();
+    }
+
+    /**
+     * Returns the parameters of the encryption operation. Only available after the stream
+     * has been closed.
+     */
+    public CryptParameters getParams() {
+        if (_params == null) {
+            throw new IllegalStateException("The stream must be closed before the parameters are available");
+        }
+
+        return _params;
+    }
+
+    private void writeCiphertext(byte[] data) throws IOException {
+        int len = data.length;
+        int flushLen = _tailLen + len - _tail.length;
+        if (flushLen <= 0) {
+            System.arraycopy(data, 0, _tail, _tailLen, len);
+            _tailLen += len;
+            return;
+        }
+
+        // everything that's not part of the last TAG_SIZE bytes can be passed on
+        int tailFlushLen = Math.min(_tailLen, flushLen);
+        int dataFlushLen = flushLen - tailFlushLen;
+        _out.write(_tail, 0, tailFlushLen);
+        _out.write(data, 0, dataFlushLen);
+
+        int tailKeepLen = _tailLen - tailFlushLen;
+        System.arraycopy(_tail, tailFlushLen, _tail, 0, tailKeepLen);
+        System.arraycopy(data, dataFlushLen, _tail, tailKeepLen, len - dataFlushLen);
+        _tailLen = tailKeepLen + len - dataFlushLen;
+    }
+}
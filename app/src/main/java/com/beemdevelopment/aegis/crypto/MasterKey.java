@@ -1,6 +1,7 @@
 package com.beemdevelopment.aegis.crypto;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -40,6 +41,22 @@ public class MasterKey implements Serializable {
         }
     }
 
+    /**
+     * Returns a stream that encrypts everything written to it and passes the ciphertext on to
+     * the given OutputStream. The parameters of the operation are available after it has been closed.
+     */
+    public CryptOutputStream encrypt(OutputStream stream) throws MasterKeyException {
+        try {
+            Cipher cipher = CryptoUtils.createEncryptCipher(_key);
+            return new CryptOutputStream(stream, cipher);
+        } catch (NoSuchPaddingException
+                | NoSuchAlgorithmException
+                | InvalidAlgorithmParameterException
+                | InvalidKeyException e) {
+            throw new MasterKeyException(e);
+        }
+    }
+
     public CryptResult decrypt(byte[] bytes, CryptParameters params) throws MasterKeyException {
         try {
             Cipher cipher = CryptoUtils.createDecryptCipher(_key, params.getNonce());
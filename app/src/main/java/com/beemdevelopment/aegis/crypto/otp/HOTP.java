@@ -15,16 +15,21 @@ public class HOTP {
     public static OTP generateOTP(byte[] secret, String algo, int digits, long counter)
             throws NoSuchAlgorithmException, InvalidKeyException {
         byte[] hash = getHash(secret, algo, counter);
+        return truncate(hash, digits);
+    }
+
+    static OTP truncate(byte[] hash, int digits) {
+        return new OTP(truncate(hash), digits);
+    }
 
+    static int truncate(byte[] hash) {
         // truncate hash to get the HTOP value
         // http://tools.ietf.org/html/rfc4226#section-5.4
         int offset = hash[hash.length - 1] & 0xf;
-        int otp = ((hash[offset] & 0x7f) << 24)
+        return ((hash[offset] & 0x7f) << 24)
                 | ((hash[offset + 1] & 0xff) << 16)
                 | ((hash[offset + 2] & 0xff) << 8)
                 | (hash[offset + 3] & 0xff);
-
-        return new OTP(otp, digits);
     }
 
     public static byte[] getHash(byte[] secret, String algo, long counter)
@@ -0,0 +1,140 @@
+package com.beemdevelopment.aegis.crypto.otp;
+
+/**
+ * Renders OTP's into a reusable char array, so that refreshing a code that's on screen doesn't
+ * allocate anything. The array is double-buffered: a code is rendered into a scratch buffer
+ * first and only replaces the current one if it's different. That way, a char array that was
+ * handed to a TextView is never modified while it's still being displayed.
+ *
+ * The static render methods are also used by OTP and YAOTP to implement toString().
+ */
+public class OtpFormatter {
+    // the maximum amount of digits that OtpInfo allows
+    private static final int MAX_DIGITS = 10;
+    private static final int MAX_LENGTH = MAX_DIGITS * 2 - 1;
+
+    private static final char[] STEAM_ALPHABET = "23456789BCDFGHJKMNPQRTVWXY".toCharArray();
+    private static final int EN_ALPHABET_LENGTH = 26;
+
+    private char[] _chars = new char[MAX_LENGTH];
+    private char[] _scratch = new char[MAX_LENGTH];
+    private int _length = -1;
+
+    public char[] getChars() {
+        return _chars;
+    }
+
+    public int getLength() {
+        return Math.max(_length, 0);
+    }
+
+    /**
+     * Forgets the current code, so that the next call to one of the set methods reports a change.
+     */
+    public void reset() {
+        _length = -1;
+    }
+
+    /**
+     * Sets the current code to the given numeric code, split into groups of the given size.
+     * Returns whether the current code changed.
+     */
+    public boolean setDigits(long code, int digits, int groupSize) {
+        int length = renderDigits(code, digits, _scratch);
+        return commit(group(_scratch, length, groupSize));
+    }
+
+    public boolean setSteam(int code, int digits) {
+        return commit(renderSteam(code, digits, _scratch));
+    }
+
+    public boolean setYandex(long code, int digits) {
+        return commit(renderYandex(code, digits, _scratch));
+    }
+
+    /**
+     * Sets the current code to the given amount of the given placeholder character, split
+     * into groups of the given size (if it's greater than zero).
+     */
+    public boolean setHidden(char c, int digits, int groupSize) {
+        checkDigits(digits);
+        for (int i = 0; i < digits; i++) {
+            _scratch[i] = c;
+        }
+        return commit(group(_scratch, digits, groupSize));
+    }
+
+    private boolean commit(int length) {
+        if (length == _length) {
+            boolean equal = true;
+            for (int i = 0; i < length && equal; i++) {
+                equal = _chars[i] == _scratch[i];
+            }
+            if (equal) {
+                return false;
+            }
+        }
+
+        char[] chars = _chars;
+        _chars = _scratch;
+        _scratch = chars;
+        _length = length;
+        return true;
+    }
+
+    /**
+     * Renders the given amount of least significant decimal digits of the given code into
+     * the given array, padded with zeroes. Returns the amount of chars written.
+     */
+    public static int renderDigits(long code, int digits, char[] dst) {
+        checkDigits(digits);
+        for (int i = digits - 1; i >= 0; i--) {
+            dst[i] = (char) ('0' + (code % 10));
+            code /= 10;
+        }
+        return digits;
+    }
+
+    public static int renderSteam(int code, int digits, char[] dst) {
+        checkDigits(digits);
+        for (int i = 0; i < digits; i++) {
+            dst[i] = STEAM_ALPHABET[code % STEAM_ALPHABET.length];
+            code /= STEAM_ALPHABET.length;
+        }
+        return digits;
+    }
+
+    public static int renderYandex(long code, int digits, char[] dst) {
+        checkDigits(digits);
+        for (int i = digits - 1; i >= 0; i--) {
+            dst[i] = (char) ('a' + (code % EN_ALPHABET_LENGTH));
+            code /= EN_ALPHABET_LENGTH;
+        }
+        return digits;
+    }
+
+    /**
+     * Inserts a space between every group of the given size in the first length chars of the
+     * given array, in place. Returns the new length.
+     */
+    private static int group(char[] chars, int length, int groupSize) {
+        if (groupSize <= 0 || length <= groupSize) {
+            return length;
+        }
+
+        int newLength = length + (length - 1) / groupSize;
+        for (int i = length - 1, j = newLength - 1; i >= 0; i--) {
+            chars[j--] = chars[i];
+            if (i != 0 && i % groupSize == 0) {
+                chars[j--] = ' ';
+            }
+        }
+        return newLength;
+    }
+
+    private static void checkDigits(int digits) {
+        if (digits <= 0 || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException(String.format("Unsupported amount of digits: %d", digits));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.beemdevelopment.aegis.crypto.otp;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Generates OTP's for a single secret and algorithm. Unlike HOTP.generateOTP, this looks up
+ * the Mac and initializes it with the secret only once, and reuses the buffers for the
+ * counter and the hash for every code.
+ *
+ * A Mac can't be used by multiple threads at once, so calls are serialized. Subclasses can
+ * override truncate for OTP schemes that truncate the hash differently (see YAOTP).
+ */
+public class OtpGenerator {
+    private final Mac _mac;
+    private final byte[] _counter = new byte[8];
+    private final byte[] _hash;
+
+    public OtpGenerator(byte[] secret, String algo) throws NoSuchAlgorithmException, InvalidKeyException {
+        _mac = Mac.getInstance(algo);
+        _mac.init(new SecretKeySpec(secret, "RAW"));
+        _hash = new byte[_mac.getMacLength()];
+    }
+
+    public OTP generateOTP(int digits, long counter) {
+        return new OTP((int) generateCode(counter), digits);
+    }
+
+    public OTP generateOTP(int digits, long period, long seconds) {
+        return generateOTP(digits, TOTP.getCounter(period, seconds));
+    }
+
+    /**
+     * Returns the untruncated code for the given counter, without allocating an OTP. See
+     * OtpFormatter for rendering it.
+     */
+    public synchronized long generateCode(long counter) {
+        computeHash(counter);
+        return truncate(_hash);
+    }
+
+    /**
+     * Returns the untruncated codes for the given amount of consecutive counters, starting at
+     * the given counter. This is meant for computing the codes of upcoming time steps ahead
+     * of time.
+     */
+    public synchronized long[] generateCodes(long counter, int count) {
+        long[] codes = new long[count];
+        for (int i = 0; i < count; i++) {
+            computeHash(counter + i);
+            codes[i] = truncate(_hash);
+        }
+        return codes;
+    }
+
+    /**
+     * Extracts the code from the given hash. This must not modify or hold on to the hash.
+     */
+    protected long truncate(byte[] hash) {
+        return HOTP.truncate(hash);
+    }
+
+    /**
+     * Returns the hash of the given counter in a newly allocated array.
+     */
+    public synchronized byte[] getHash(long counter) {
+        computeHash(counter);
+        return _hash.clone();
+    }
+
+    private void computeHash(long counter) {
+        // encode counter in big endian
+        for (int i = _counter.length - 1; i >= 0; i--) {
+            _counter[i] = (byte) counter;
+            counter >>>= 8;
+        }
+
+        try {
+            _mac.update(_counter);
+            _mac.doFinal(_hash, 0);
+        } catch (ShortBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -10,10 +10,14 @@ public class TOTP {
 
     public static OTP generateOTP(byte[] secret, String algo, int digits, long period, long seconds)
             throws InvalidKeyException, NoSuchAlgorithmException {
-        long counter = (long) Math.floor((double) seconds / period);
+        long counter = getCounter(period, seconds);
         return HOTP.generateOTP(secret, algo, digits, counter);
     }
 
+    public static long getCounter(long period, long seconds) {
+        return (long) Math.floor((double) seconds / period);
+    }
+
     public static OTP generateOTP(byte[] secret, String algo, int digits, long period)
             throws InvalidKeyException, NoSuchAlgorithmException {
         return generateOTP(secret, algo, digits, period, System.currentTimeMillis() / 1000);
@@ -2,10 +2,6 @@ package com.beemdevelopment.aegis.crypto.otp;
 
 import androidx.annotation.NonNull;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
@@ -13,7 +9,6 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 public class YAOTP {
-    private static final int EN_ALPHABET_LENGTH = 26;
     private final long _code;
     private final int _digits;
 
@@ -22,50 +17,79 @@ public class YAOTP {
         _digits = digits;
     }
 
+    public long getCode() {
+        return _code;
+    }
+
+    public int getDigits() {
+        return _digits;
+    }
+
     public static YAOTP generateOTP(byte[] secret, String pin, int digits, String otpAlgo, long period)
-            throws NoSuchAlgorithmException, InvalidKeyException, IOException {
+            throws NoSuchAlgorithmException, InvalidKeyException {
         long seconds = System.currentTimeMillis() / 1000;
         return generateOTP(secret, pin, digits, otpAlgo, seconds, period);
     }
 
     public static YAOTP generateOTP(byte[] secret, String pin, int digits, String otpAlgo, long seconds, long period)
-            throws NoSuchAlgorithmException, InvalidKeyException, IOException {
-        byte[] pinWithHash;
-        byte[] pinBytes = pin.getBytes(StandardCharsets.UTF_8);
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream(pinBytes.length + secret.length)) {
-            stream.write(pinBytes);
-            stream.write(secret);
-            pinWithHash = stream.toByteArray();
-        }
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        long counter = TOTP.getCounter(period, seconds);
+        return new YAOTP(generateCode(secret, pin, otpAlgo, counter), digits);
+    }
+
+    /**
+     * Returns the untruncated code for the given counter. See OtpFormatter for rendering it.
+     */
+    public static long generateCode(byte[] secret, String pin, String otpAlgo, long counter)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        byte[] periodHash = HOTP.getHash(deriveKey(secret, pin), otpAlgo, counter);
+        return truncate(periodHash);
+    }
 
+    /**
+     * Returns a generator that's keyed with the key derived from the given secret and PIN,
+     * so that the key only has to be derived once for all of the codes of an entry.
+     */
+    public static OtpGenerator createGenerator(byte[] secret, String pin, String otpAlgo)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        return new OtpGenerator(deriveKey(secret, pin), otpAlgo) {
+            @Override
+            protected long truncate(byte[] hash) {
+                return YAOTP.truncate(hash);
+            }
+        };
+    }
+
+    /**
+     * Derives the HMAC key from the given secret and PIN: the SHA-256 hash of the PIN
+     * followed by the secret, without its first byte if that's zero.
+     */
+    static byte[] deriveKey(byte[] secret, String pin) throws NoSuchAlgorithmException {
         MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[] keyHash = md.digest(pinWithHash);
+        md.update(pin.getBytes(StandardCharsets.UTF_8));
+        md.update(secret);
+
+        byte[] keyHash = md.digest();
         if (keyHash[0] == 0) {
             keyHash = Arrays.copyOfRange(keyHash, 1, keyHash.length);
         }
+        return keyHash;
+    }
 
-        long counter = (long) Math.floor((double) seconds / period);
-        byte[] periodHash = HOTP.getHash(keyHash, otpAlgo, counter);
-        int offset = periodHash[periodHash.length - 1] & 0xf;
-        periodHash[offset] &= 0x7f;
-        long otp = ByteBuffer.wrap(periodHash)
-                .order(ByteOrder.BIG_ENDIAN)
-                .getLong(offset);
-
-        return new YAOTP(otp, digits);
+    static long truncate(byte[] hash) {
+        int offset = hash[hash.length - 1] & 0xf;
+        long otp = hash[offset] & 0x7f;
+        for (int i = 1; i < 8; i++) {
+            otp = (otp << 8) | (hash[offset + i] & 0xff);
+        }
+        return otp;
     }
 
     @NonNull
     @Override
     public String toString() {
-        long code = _code % (long) Math.pow(EN_ALPHABET_LENGTH, _digits);
         char[] chars = new char[_digits];
-
-        for (int i = _digits - 1; i >= 0; i--) {
-            chars[i] = (char) ('a' + (code % EN_ALPHABET_LENGTH));
-            code /= EN_ALPHABET_LENGTH;
-        }
-
+        OtpFormatter.renderYandex(_code, _digits, chars);
         return new String(chars);
     }
 }
@@ -2,6 +2,8 @@ package com.beemdevelopment.aegis.encoding;
 
 import com.google.common.io.BaseEncoding;
 
+import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 public class Base64 {
@@ -21,7 +23,22 @@ public class Base64 {
         return decode(new String(s, StandardCharsets.UTF_8));
     }
 
+    /**
+     * Reports whether the given string can be decoded, without actually decoding it.
+     */
+    public static boolean canDecode(String s) {
+        return BaseEncoding.base64().canDecode(s);
+    }
+
     public static String encode(byte[] data) {
         return BaseEncoding.base64().encode(data);
     }
+
+    /**
+     * Returns a stream that Base64-encodes everything written to it and passes the result on
+     * to the given Writer. Closing the stream writes any padding and closes the Writer.
+     */
+    public static OutputStream encodingStream(Writer writer) {
+        return BaseEncoding.base64().encodingStream(writer);
+    }
 }
@@ -0,0 +1,36 @@
+package com.beemdevelopment.aegis.helpers;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class FutureHelper {
+    private FutureHelper() {
+
+    }
+
+    /**
+     * Calls the given listener on the UI thread if the given future fails. Nothing happens if
+     * it succeeds.
+     */
+    public static <T> void onFailure(@NonNull ListenableFuture<T> future, @NonNull FailureListener listener) {
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                t.printStackTrace();
+                listener.onFailure(t);
+            }
+        }, new UiThreadExecutor());
+    }
+
+    public interface FailureListener {
+        void onFailure(@NonNull Throwable t);
+    }
+}
@@ -0,0 +1,212 @@
+package com.beemdevelopment.aegis.helpers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.Choreographer;
+
+import com.beemdevelopment.aegis.otp.TotpInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single clock for everything in the UI that changes with the time step of TOTP entries.
+ * Listeners are grouped by period, and every group wakes up once per period, exactly at the
+ * boundary of the time step (instead of every row polling on its own). Listeners that animate
+ * something continuously (e.g. progress bars) get a callback on every frame from Choreographer,
+ * with all of them sharing a single frame callback.
+ *
+ * The ticker is paused while nothing that uses it is visible (see resume and pause). Groups
+ * whose time step changed while it was paused are notified as soon as it's resumed. It must
+ * only be used from the main thread.
+ */
+public class PeriodTicker {
+    private static PeriodTicker _instance;
+
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+    private final SparseArray<Bucket> _buckets = new SparseArray<>();
+    private final List<FrameListener> _frameListeners = new ArrayList<>();
+    private final Choreographer.FrameCallback _frameCallback = this::onFrame;
+    private boolean _framePosted;
+    private int _resumeCount;
+
+    private PeriodTicker() {
+
+    }
+
+    public static PeriodTicker getInstance() {
+        if (_instance == null) {
+            _instance = new PeriodTicker();
+        }
+        return _instance;
+    }
+
+    /**
+     * Resumes the ticker. Calls to resume and pause must be balanced; the ticker only runs
+     * while it has been resumed more often than it has been paused.
+     */
+    public void resume() {
+        if (_resumeCount++ > 0) {
+            return;
+        }
+
+        for (int i = 0; i < _buckets.size(); i++) {
+            Bucket bucket = _buckets.valueAt(i);
+            if (bucket.getStep(System.currentTimeMillis()) != bucket._step) {
+                bucket.tick();
+            } else {
+                bucket.schedule();
+            }
+        }
+        postFrame();
+    }
+
+    public void pause() {
+        if (_resumeCount == 0 || --_resumeCount > 0) {
+            return;
+        }
+
+        for (int i = 0; i < _buckets.size(); i++) {
+            _buckets.valueAt(i).cancel();
+        }
+        cancelFrame();
+    }
+
+    private boolean isRunning() {
+        return _resumeCount > 0;
+    }
+
+    /**
+     * Calls the given listener every time the time step of the given period changes. Adding a
+     * listener that was already added for the given period has no effect.
+     */
+    public void subscribe(int period, Listener listener) {
+        Bucket bucket = _buckets.get(period);
+        if (bucket == null) {
+            bucket = new Bucket(period);
+            _buckets.put(period, bucket);
+            if (isRunning()) {
+                bucket.schedule();
+            }
+        }
+
+        if (!bucket._listeners.contains(listener)) {
+            bucket._listeners.add(listener);
+        }
+    }
+
+    public void unsubscribe(int period, Listener listener) {
+        Bucket bucket = _buckets.get(period);
+        if (bucket != null && bucket._listeners.remove(listener) && bucket._listeners.isEmpty()) {
+            bucket.cancel();
+            _buckets.remove(period);
+        }
+    }
+
+    public void subscribeFrames(FrameListener listener) {
+        if (!_frameListeners.contains(listener)) {
+            _frameListeners.add(listener);
+            postFrame();
+        }
+    }
+
+    public void unsubscribeFrames(FrameListener listener) {
+        if (_frameListeners.remove(listener) && _frameListeners.isEmpty()) {
+            cancelFrame();
+        }
+    }
+
+    private void postFrame() {
+        if (!_framePosted && isRunning() && !_frameListeners.isEmpty()) {
+            Choreographer.getInstance().postFrameCallback(_frameCallback);
+            _framePosted = true;
+        }
+    }
+
+    private void cancelFrame() {
+        if (_framePosted) {
+            Choreographer.getInstance().removeFrameCallback(_frameCallback);
+            _framePosted = false;
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        _framePosted = false;
+
+        long millis = System.currentTimeMillis();
+        for (int i = _frameListeners.size() - 1; i >= 0; i--) {
+            // a listener may unsubscribe itself
+            if (i < _frameListeners.size()) {
+                _frameListeners.get(i).onFrame(millis);
+            }
+        }
+
+        postFrame();
+    }
+
+    private class Bucket implements Runnable {
+        private final int _period;
+        private final List<Listener> _listeners = new ArrayList<>();
+        // the time step that the listeners were last notified of
+        private long _step;
+
+        private Bucket(int period) {
+            _period = period;
+            _step = getStep(System.currentTimeMillis());
+        }
+
+        private long getStep(long millis) {
+            return millis / (_period * 1000L);
+        }
+
+        private void schedule() {
+            cancel();
+            long delay = TotpInfo.getMillisTillNextRotation(_period);
+            _handler.postAtTime(this, SystemClock.uptimeMillis() + delay);
+        }
+
+        private void cancel() {
+            _handler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            // the uptime clock and the wall clock can drift apart a little, so make sure that
+            // the time step actually changed before notifying anyone
+            if (getStep(System.currentTimeMillis()) == _step) {
+                schedule();
+                return;
+            }
+
+            tick();
+        }
+
+        private void tick() {
+            _step = getStep(System.currentTimeMillis());
+            for (Listener listener : new ArrayList<>(_listeners)) {
+                listener.onTick();
+            }
+
+            // a listener may have removed the last listener, which removes the bucket
+            if (!_listeners.isEmpty() && isRunning()) {
+                schedule();
+            }
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called right after the time step of the period that this listener subscribed to changes.
+         */
+        void onTick();
+    }
+
+    public interface FrameListener {
+        /**
+         * Called on every frame, with the current wall clock time in milliseconds.
+         */
+        void onFrame(long millis);
+    }
+}
@@ -1,14 +1,29 @@
 package com.beemdevelopment.aegis.helpers;
 
+import android.util.LruCache;
 import android.view.View;
 
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.amulyakhare.textdrawable.util.ColorGenerator;
+import com.beemdevelopment.aegis.R;
 
 import java.text.BreakIterator;
 import java.util.Arrays;
 
+/**
+ * Generates the round letter avatars that are shown for entries without an icon. The first
+ * grapheme and the color are only determined once for every text. Every view gets its own
+ * drawable, which is reused as long as the view keeps showing the same avatar at the same
+ * size, so rebinding a row to the same entry doesn't allocate anything.
+ *
+ * The cache holds on to the names and issuers of entries, so it's cleared when the vault is
+ * locked (see clearCache).
+ */
 public class TextDrawableHelper {
+    // enough for the entries in a large vault, without evicting them while typing in the edit screen
+    private static final int CACHE_SIZE = 512;
+    private static final LruCache<String, Avatar> _avatars = new LruCache<>(CACHE_SIZE);
+
     // taken from: https://materialuicolors.co (level 700)
     private static ColorGenerator _generator = ColorGenerator.create(Arrays.asList(
             0xFFD32F2F,
@@ -44,12 +59,33 @@ public class TextDrawableHelper {
             text = fallback;
         }
 
-        int color = _generator.getColor(text);
-        return TextDrawable.builder().beginConfig()
-                .width(view.getLayoutParams().width)
-                .height(view.getLayoutParams().height)
+        Avatar avatar = _avatars.get(text);
+        if (avatar == null) {
+            avatar = new Avatar(getFirstGrapheme(text).toUpperCase(), _generator.getColor(text));
+            _avatars.put(text, avatar);
+        }
+
+        int width = view.getLayoutParams().width;
+        int height = view.getLayoutParams().height;
+        Object tag = view.getTag(R.id.text_drawable);
+        if (tag instanceof RenderedAvatar && ((RenderedAvatar) tag).matches(avatar, width, height)) {
+            return ((RenderedAvatar) tag)._drawable;
+        }
+
+        TextDrawable drawable = TextDrawable.builder().beginConfig()
+                .width(width)
+                .height(height)
                 .endConfig()
-                .buildRound(getFirstGrapheme(text).toUpperCase(), color);
+                .buildRound(avatar._grapheme, avatar._color);
+        view.setTag(R.id.text_drawable, new RenderedAvatar(avatar, width, height, drawable));
+        return drawable;
+    }
+
+    /**
+     * Drops the cached avatars, along with the texts they were generated for.
+     */
+    public static void clearCache() {
+        _avatars.evictAll();
     }
 
     private static String getFirstGrapheme(String text) {
@@ -63,4 +99,39 @@ public class TextDrawableHelper {
 
         return text.substring(start, end);
     }
+
+    private static class Avatar {
+        private final String _grapheme;
+        private final int _color;
+
+        private Avatar(String grapheme, int color) {
+            _grapheme = grapheme;
+            _color = color;
+        }
+
+        private boolean isSameAs(Avatar avatar) {
+            return _color == avatar._color && _grapheme.equals(avatar._grapheme);
+        }
+    }
+
+    /**
+     * The drawable that was last generated for a view, along with what it was generated for.
+     */
+    private static class RenderedAvatar {
+        private final Avatar _avatar;
+        private final int _width;
+        private final int _height;
+        private final TextDrawable _drawable;
+
+        private RenderedAvatar(Avatar avatar, int width, int height, TextDrawable drawable) {
+            _avatar = avatar;
+            _width = width;
+            _height = height;
+            _drawable = drawable;
+        }
+
+        private boolean matches(Avatar avatar, int width, int height) {
+            return _width == width && _height == height && _avatar.isSameAs(avatar);
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package com.beemdevelopment.aegis.icons;
 
 import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.Nullable;
 
 import com.beemdevelopment.aegis.util.IOUtils;
+import com.google.common.util.concurrent.Futures;
 
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.io.inputstream.ZipInputStream;
@@ -19,18 +22,45 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class IconPackManager {
+    private static final String TAG = IconPackManager.class.getSimpleName();
     private static final String _packDefFilename = "pack.json";
 
     private File _iconsBaseDir;
     private List<IconPack> _iconPacks;
+    // the initial scan of the icon packs, which is awaited by everything that depends on its result
+    private final Future<?> _scanner;
 
     public IconPackManager(Context context) {
         _iconPacks = new ArrayList<>();
         _iconsBaseDir = new File(context.getFilesDir(), "icons");
-        rescanIconPacks();
+
+        // listing the icon pack directories and parsing their definitions is kept off of the main thread during startup
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        _scanner = executor.submit(() -> {
+            long start = SystemClock.elapsedRealtime();
+            rescanIconPacks();
+            Log.i(TAG, String.format("Scanned the icon packs in %d ms", SystemClock.elapsedRealtime() - start));
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Blocks until the initial scan of the icon packs has finished. This is a no-op after startup.
+     */
+    private void awaitScan() {
+        if (_scanner.isDone()) {
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Futures.getUnchecked(_scanner);
+        Log.i(TAG, String.format("Waited %d ms for the icon packs to be scanned", SystemClock.elapsedRealtime() - start));
     }
 
     private IconPack getIconPackByUUID(UUID uuid) {
@@ -43,10 +73,13 @@ public class IconPackManager {
     }
 
     public List<IconPack> getIconPacks() {
+        awaitScan();
         return new ArrayList<>(_iconPacks);
     }
 
     public void removeIconPack(IconPack pack) throws IconPackException {
+        awaitScan();
+
         try {
             File dir = getIconPackDir(pack);
             deleteDir(dir);
@@ -58,6 +91,8 @@ public class IconPackManager {
     }
 
     public IconPack importPack(File inFile) throws IconPackException {
+        awaitScan();
+
         try {
             // read and parse the icon pack definition file of the icon pack
             ZipFile zipFile = new ZipFile(inFile);
@@ -1,7 +1,8 @@
 package com.beemdevelopment.aegis.otp;
 
-import com.beemdevelopment.aegis.crypto.otp.HOTP;
+import com.beemdevelopment.aegis.VaultProtos;
 import com.beemdevelopment.aegis.crypto.otp.OTP;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -30,15 +31,29 @@ public class HotpInfo extends OtpInfo {
     }
 
     @Override
-    public String getOtp() {
+    public long getStep(long millis) {
+        return getCounter();
+    }
+
+    @Override
+    public long generateCode(long step) {
         try {
-            OTP otp = HOTP.generateOTP(getSecret(), getAlgorithm(true), getDigits(), getCounter());
-            return otp.toString();
+            return getGenerator().generateCode(step);
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public boolean formatCode(OtpFormatter formatter, long code, int groupSize) {
+        return formatter.setDigits(code, getDigits(), groupSize);
+    }
+
+    @Override
+    public String renderCode(long code) {
+        return new OTP((int) code, getDigits()).toString();
+    }
+
     @Override
     public String getTypeId() {
         return ID;
@@ -55,6 +70,11 @@ public class HotpInfo extends OtpInfo {
         return obj;
     }
 
+    @Override
+    public VaultProtos.OtpInfo.Builder toProto() {
+        return super.toProto().setCounter(getCounter());
+    }
+
     public long getCounter() {
         return _counter;
     }
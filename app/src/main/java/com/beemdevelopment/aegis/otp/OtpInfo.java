@@ -1,16 +1,23 @@
 package com.beemdevelopment.aegis.otp;
 
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
+import com.beemdevelopment.aegis.crypto.otp.OtpGenerator;
 import com.beemdevelopment.aegis.encoding.Base32;
 import com.beemdevelopment.aegis.encoding.EncodingException;
 
+import com.google.protobuf.ByteString;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.Serializable;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Locale;
 
-public abstract class OtpInfo implements Serializable {
+public abstract class OtpInfo implements Serializable, Cloneable {
     public static final int DEFAULT_DIGITS = 6;
     public static final String DEFAULT_ALGORITHM = "SHA1";
 
@@ -18,6 +25,9 @@ public abstract class OtpInfo implements Serializable {
     private String _algorithm;
     private int _digits;
 
+    // derived from the secret and the algorithm, so it's reset whenever one of those changes
+    private transient OtpGenerator _generator;
+
     public OtpInfo(byte[] secret) throws OtpInfoException {
         this(secret, DEFAULT_ALGORITHM, DEFAULT_DIGITS);
     }
@@ -28,7 +38,49 @@ public abstract class OtpInfo implements Serializable {
         setDigits(digits);
     }
 
-    public abstract String getOtp();
+    /**
+     * Returns the counter that the OTP is generated for at the given time (in milliseconds).
+     * For time-based OTP's, this is the time step. For HOTP, the time is ignored.
+     */
+    public abstract long getStep(long millis);
+
+    /**
+     * Returns the untruncated code for the given counter (see getStep). The digits of this
+     * OtpInfo are only applied when the code is rendered.
+     */
+    public abstract long generateCode(long step);
+
+    /**
+     * Returns the untruncated codes for the given amount of consecutive steps, starting at
+     * the given step.
+     */
+    public long[] generateCodes(long step, int count) {
+        long[] codes = new long[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = generateCode(step + i);
+        }
+        return codes;
+    }
+
+    /**
+     * Renders the given code (see generateCode) into the given formatter, without allocating
+     * anything. Numeric codes are split into groups of the given size. Returns whether the
+     * rendered code changed.
+     */
+    public abstract boolean formatCode(OtpFormatter formatter, long code, int groupSize);
+
+    /**
+     * Renders the given code (see generateCode) as a string.
+     */
+    public abstract String renderCode(long code);
+
+    public String getOtp() {
+        return renderCode(generateCode(getStep(System.currentTimeMillis())));
+    }
+
+    public boolean formatOtp(OtpFormatter formatter, int groupSize) {
+        return formatCode(formatter, generateCode(getStep(System.currentTimeMillis())), groupSize);
+    }
 
     public abstract String getTypeId();
 
@@ -50,6 +102,14 @@ public abstract class OtpInfo implements Serializable {
         return obj;
     }
 
+    public VaultProtos.OtpInfo.Builder toProto() {
+        return VaultProtos.OtpInfo.newBuilder()
+                .setType(getTypeId())
+                .setSecret(ByteString.copyFrom(getSecret()))
+                .setAlgo(getAlgorithm(false))
+                .setDigits(getDigits());
+    }
+
     public byte[] getSecret() {
         return _secret;
     }
@@ -67,6 +127,30 @@ public abstract class OtpInfo implements Serializable {
 
     public void setSecret(byte[] secret) {
         _secret = secret;
+        resetGenerator();
+    }
+
+    /**
+     * Returns the generator for the secret and algorithm of this OtpInfo. It's created the
+     * first time it's needed and then reused for every OTP, until it's reset.
+     */
+    protected synchronized OtpGenerator getGenerator() throws NoSuchAlgorithmException, InvalidKeyException {
+        if (_generator == null) {
+            _generator = createGenerator();
+        }
+        return _generator;
+    }
+
+    protected OtpGenerator createGenerator() throws NoSuchAlgorithmException, InvalidKeyException {
+        return new OtpGenerator(getSecret(), getAlgorithm(true));
+    }
+
+    /**
+     * Drops the generator (and with it, the key it was initialized with). A new one is
+     * created the next time an OTP is generated.
+     */
+    public synchronized void resetGenerator() {
+        _generator = null;
     }
 
     public static boolean isAlgorithmValid(String algorithm) {
@@ -83,6 +167,7 @@ public abstract class OtpInfo implements Serializable {
             throw new OtpInfoException(String.format("unsupported algorithm: %s", algorithm));
         }
         _algorithm = algorithm;
+        resetGenerator();
     }
 
     public static boolean isDigitsValid(int digits) {
@@ -128,6 +213,40 @@ public abstract class OtpInfo implements Serializable {
         return info;
     }
 
+    public static OtpInfo fromProto(VaultProtos.OtpInfo proto) throws OtpInfoException {
+        byte[] secret = proto.getSecret().toByteArray();
+        String algo = proto.getAlgo();
+        int digits = proto.getDigits();
+
+        switch (proto.getType()) {
+            case TotpInfo.ID:
+                return new TotpInfo(secret, algo, digits, proto.getPeriod());
+            case SteamInfo.ID:
+                return new SteamInfo(secret, algo, digits, proto.getPeriod());
+            case HotpInfo.ID:
+                return new HotpInfo(secret, algo, digits, proto.getCounter());
+            case YandexInfo.ID:
+                String pin = proto.getPinOneofCase() == VaultProtos.OtpInfo.PinOneofCase.PIN ? proto.getPin() : null;
+                return new YandexInfo(secret, pin);
+            default:
+                throw new OtpInfoException("unsupported otp type: " + proto.getType());
+        }
+    }
+
+    /**
+     * Returns a shallow copy of this OtpInfo. The secret is shared, as it's never modified in place.
+     */
+    @Override
+    public OtpInfo clone() {
+        try {
+            OtpInfo info = (OtpInfo) super.clone();
+            info._generator = null;
+            return info;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
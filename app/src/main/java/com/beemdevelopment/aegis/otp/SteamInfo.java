@@ -1,10 +1,8 @@
 package com.beemdevelopment.aegis.otp;
 
 import com.beemdevelopment.aegis.crypto.otp.OTP;
-import com.beemdevelopment.aegis.crypto.otp.TOTP;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
 
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.util.Locale;
 
 public class SteamInfo extends TotpInfo {
@@ -20,13 +18,13 @@ public class SteamInfo extends TotpInfo {
     }
 
     @Override
-    public String getOtp() {
-        try {
-            OTP otp = TOTP.generateOTP(getSecret(), getAlgorithm(true), getDigits(), getPeriod());
-            return otp.toSteamString();
-        } catch (InvalidKeyException | NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+    public boolean formatCode(OtpFormatter formatter, long code, int groupSize) {
+        return formatter.setSteam((int) code, getDigits());
+    }
+
+    @Override
+    public String renderCode(long code) {
+        return new OTP((int) code, getDigits()).toSteamString();
     }
 
     @Override
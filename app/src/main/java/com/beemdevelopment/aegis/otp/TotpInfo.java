@@ -1,6 +1,8 @@
 package com.beemdevelopment.aegis.otp;
 
+import com.beemdevelopment.aegis.VaultProtos;
 import com.beemdevelopment.aegis.crypto.otp.OTP;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
 import com.beemdevelopment.aegis.crypto.otp.TOTP;
 
 import org.json.JSONException;
@@ -26,24 +28,42 @@ public class TotpInfo extends OtpInfo {
     }
 
     @Override
-    public String getOtp() {
+    public long getStep(long millis) {
+        return TOTP.getCounter(getPeriod(), millis / 1000);
+    }
+
+    @Override
+    public long generateCode(long step) {
         try {
-            OTP otp = TOTP.generateOTP(getSecret(), getAlgorithm(true), getDigits(), getPeriod());
-            return otp.toString();
+            return getGenerator().generateCode(step);
         } catch (InvalidKeyException | NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public String getOtp(long time) {
+    @Override
+    public long[] generateCodes(long step, int count) {
         try {
-            OTP otp = TOTP.generateOTP(getSecret(), getAlgorithm(true), getDigits(), getPeriod(), time);
-            return otp.toString();
+            return getGenerator().generateCodes(step, count);
         } catch (InvalidKeyException | NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public boolean formatCode(OtpFormatter formatter, long code, int groupSize) {
+        return formatter.setDigits(code, getDigits(), groupSize);
+    }
+
+    @Override
+    public String renderCode(long code) {
+        return new OTP((int) code, getDigits()).toString();
+    }
+
+    public String getOtp(long time) {
+        return renderCode(generateCode(TOTP.getCounter(getPeriod(), time)));
+    }
+
     @Override
     public String getTypeId() {
         return ID;
@@ -60,6 +80,11 @@ public class TotpInfo extends OtpInfo {
         return obj;
     }
 
+    @Override
+    public VaultProtos.OtpInfo.Builder toProto() {
+        return super.toProto().setPeriod(getPeriod());
+    }
+
     public int getPeriod() {
         return _period;
     }
@@ -85,8 +110,12 @@ public class TotpInfo extends OtpInfo {
     }
 
     public static long getMillisTillNextRotation(int period) {
-        long p = period * 1000;
-        return p - (System.currentTimeMillis() % p);
+        return getMillisTillNextRotation(period, System.currentTimeMillis());
+    }
+
+    public static long getMillisTillNextRotation(int period, long millis) {
+        long p = period * 1000L;
+        return p - (millis % p);
     }
 
     @Override
@@ -3,12 +3,14 @@ package com.beemdevelopment.aegis.otp;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
+import com.beemdevelopment.aegis.crypto.otp.OtpGenerator;
 import com.beemdevelopment.aegis.crypto.otp.YAOTP;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -37,18 +39,29 @@ public class YandexInfo extends TotpInfo {
         _pin = pin;
     }
 
+    /**
+     * Returns a generator that's keyed with the key derived from the secret and the PIN. It's
+     * reset whenever one of those changes, so the key is only derived once.
+     */
     @Override
-    public String getOtp() {
+    protected OtpGenerator createGenerator() throws NoSuchAlgorithmException, InvalidKeyException {
         if (_pin == null) {
             throw new IllegalStateException("PIN must be set before generating an OTP");
         }
 
-        try {
-            YAOTP otp = YAOTP.generateOTP(getSecret(), getPin(), getDigits(), getAlgorithm(true), getPeriod());
-            return otp.toString();
-        } catch (InvalidKeyException | NoSuchAlgorithmException | IOException e) {
-            throw new RuntimeException(e);
-        }
+        return YAOTP.createGenerator(getSecret(), getPin(), getAlgorithm(true));
+    }
+
+    @Override
+    public boolean formatCode(OtpFormatter formatter, long code, int groupSize) {
+        return formatter.setYandex(code, getDigits());
+    }
+
+    @Override
+    public String renderCode(long code) {
+        char[] chars = new char[getDigits()];
+        OtpFormatter.renderYandex(code, getDigits(), chars);
+        return new String(chars);
     }
 
     @Nullable
@@ -58,6 +71,7 @@ public class YandexInfo extends TotpInfo {
 
     public void setPin(@NonNull String pin) {
         _pin = pin;
+        resetGenerator();
     }
 
     @Override
@@ -82,6 +96,15 @@ public class YandexInfo extends TotpInfo {
         return result;
     }
 
+    @Override
+    public VaultProtos.OtpInfo.Builder toProto() {
+        VaultProtos.OtpInfo.Builder builder = super.toProto();
+        if (getPin() != null) {
+            builder.setPin(getPin());
+        }
+        return builder;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof YandexInfo)) {
@@ -15,9 +15,12 @@ import com.beemdevelopment.aegis.Preferences;
 import com.beemdevelopment.aegis.R;
 import com.beemdevelopment.aegis.Theme;
 import com.beemdevelopment.aegis.ThemeMap;
+import com.beemdevelopment.aegis.UsageCountStore;
+import com.beemdevelopment.aegis.helpers.FutureHelper;
 import com.beemdevelopment.aegis.icons.IconPackManager;
 import com.beemdevelopment.aegis.vault.VaultManager;
 import com.beemdevelopment.aegis.vault.VaultRepositoryException;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -42,6 +45,9 @@ public abstract class AegisActivity extends AppCompatActivity implements VaultMa
     @Inject
     protected IconPackManager _iconPackManager;
 
+    @Inject
+    protected UsageCountStore _usageCounts;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         // set the theme and locale before creating the activity
@@ -73,6 +79,16 @@ public abstract class AegisActivity extends AppCompatActivity implements VaultMa
         _vaultManager.setBlockAutoLock(false);
     }
 
+    @CallSuper
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // start writing any saves that are still pending before we go to the background
+        // this doesn't wait for them, as a failure is already reported by whoever scheduled them
+        _vaultManager.scheduleFlush();
+    }
+
     @SuppressLint("SoonBlockedPrivateApi")
     @Override
     public void onLocked(boolean userInitiated) {
@@ -147,6 +163,26 @@ public abstract class AegisActivity extends AppCompatActivity implements VaultMa
         }
     }
 
+    /**
+     * Saves the vault in the background. Bursts of calls are coalesced into a single write.
+     * An error is shown if saving fails.
+     */
+    protected void scheduleSaveVault() {
+        reportSaveErrors(_vaultManager.scheduleSave());
+    }
+
+    /**
+     * Saves the vault in the background and schedules a backup afterwards. Bursts of calls
+     * are coalesced into a single write. An error is shown if saving fails.
+     */
+    protected void scheduleSaveAndBackupVault() {
+        reportSaveErrors(_vaultManager.scheduleSaveAndBackup());
+    }
+
+    private void reportSaveErrors(ListenableFuture<Void> future) {
+        FutureHelper.onFailure(future, t -> Toast.makeText(this, getString(R.string.saving_error), Toast.LENGTH_LONG).show());
+    }
+
     /**
      * Closes this activity if it has become an orphan (isOrphan() == true) and launches MainActivity.
      * @param savedInstanceState the bundle passed to onCreate.
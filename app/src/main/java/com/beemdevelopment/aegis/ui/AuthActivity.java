@@ -186,6 +186,9 @@ public class AuthActivity extends AegisActivity {
         }
 
         _inhibitBioPrompt = false;
+
+        // marks the point at which the user can start unlocking the vault in the startup timing
+        reportFullyDrawn();
     }
 
     @Override
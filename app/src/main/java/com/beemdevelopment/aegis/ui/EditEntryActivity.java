@@ -49,7 +49,7 @@ import com.beemdevelopment.aegis.otp.TotpInfo;
 import com.beemdevelopment.aegis.otp.YandexInfo;
 import com.beemdevelopment.aegis.ui.dialogs.Dialogs;
 import com.beemdevelopment.aegis.ui.dialogs.IconPickerDialog;
-import com.beemdevelopment.aegis.ui.glide.IconLoader;
+import com.beemdevelopment.aegis.ui.glide.GlideHelper;
 import com.beemdevelopment.aegis.ui.tasks.ImportFileTask;
 import com.beemdevelopment.aegis.ui.views.IconAdapter;
 import com.beemdevelopment.aegis.util.Cloner;
@@ -201,12 +201,7 @@ public class EditEntryActivity extends AegisActivity {
         // fill the fields with values if possible
         if (_origEntry.hasIcon()) {
             IconViewHelper.setLayerType(_iconView, _origEntry.getIconType());
-            Glide.with(this)
-                .asDrawable()
-                .load(_origEntry)
-                .set(IconLoader.ICON_TYPE, _origEntry.getIconType())
-                .diskCacheStrategy(DiskCacheStrategy.NONE)
-                .skipMemoryCache(false)
+            GlideHelper.loadEntryIcon(Glide.with(this), _origEntry.getIcon(), _origEntry.getIconType())
                 .into(_iconView);
             _hasCustomIcon = true;
         } else {
@@ -313,7 +308,7 @@ public class EditEntryActivity extends AegisActivity {
             }
         });
 
-        _textUsageCount.setText(_prefs.getUsageCount(entryUUID).toString());
+        _textUsageCount.setText(String.valueOf(_usageCounts.getUsageCount(entryUUID)));
     }
 
     private void updateAdvancedFieldStatus(String otpType) {
@@ -480,7 +475,7 @@ public class EditEntryActivity extends AegisActivity {
     }
 
     private void resetUsageCount() {
-        _prefs.resetUsageCount(_origEntry.getUUID());
+        _usageCounts.resetUsageCount(_origEntry.getUUID());
         _textUsageCount.setText("0");
     }
 
@@ -513,12 +508,7 @@ public class EditEntryActivity extends AegisActivity {
         _hasChangedIcon = true;
 
         IconViewHelper.setLayerType(_iconView, icon.getIconType());
-        Glide.with(EditEntryActivity.this)
-                .asDrawable()
-                .load(icon.getFile())
-                .set(IconLoader.ICON_TYPE, icon.getIconType())
-                .diskCacheStrategy(DiskCacheStrategy.NONE)
-                .skipMemoryCache(false)
+        GlideHelper.loadEntryIcon(Glide.with(EditEntryActivity.this), icon.getFile(), icon.getIconType())
                 .into(_iconView);
     }
 
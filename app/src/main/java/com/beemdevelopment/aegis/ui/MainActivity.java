@@ -54,9 +54,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class MainActivity extends AegisActivity implements EntryListView.Listener {
     // activity request codes
@@ -157,16 +157,6 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
         super.onDestroy();
     }
 
-    @Override
-    protected void onPause() {
-        Map<UUID, Integer> usageMap = _entryListView.getUsageCounts();
-        if (usageMap != null) {
-            _prefs.setUsageCount(usageMap);
-        }
-
-        super.onPause();
-    }
-
     @Override
     protected void onSaveInstanceState(Bundle instance) {
         super.onSaveInstanceState(instance);
@@ -300,7 +290,7 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
                 }
             }
 
-            saveAndBackupVault();
+            scheduleSaveAndBackupVault();
         }
     }
 
@@ -499,9 +489,6 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
             // update the list of groups in the entry list view so that the chip gets updated
             _entryListView.setGroups(_vaultManager.getVault().getGroups());
 
-            // update the usage counts in case they are edited outside of the EntryListView
-            _entryListView.setUsageCounts(_prefs.getUsageCounts());
-
             // refresh all codes to prevent showing old ones
             _entryListView.refresh(false);
         } else {
@@ -538,12 +525,10 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
     }
 
     private void deleteEntries(List<VaultEntry> entries) {
-        for (VaultEntry entry: entries) {
-            VaultEntry oldEntry = _vaultManager.getVault().removeEntry(entry);
-            _entryListView.removeEntry(oldEntry);
-        }
+        List<VaultEntry> oldEntries = _vaultManager.getVault().removeEntries(entries);
+        _entryListView.removeEntries(oldEntries);
 
-        saveAndBackupVault();
+        scheduleSaveAndBackupVault();
     }
 
     @Override
@@ -670,10 +655,18 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
 
     private void loadEntries() {
         if (!_loaded) {
-            _entryListView.setUsageCounts(_prefs.getUsageCounts());
+            // drop the usage counts of entries that no longer exist
+            _usageCounts.retain(_vaultManager.getVault().getEntries().stream()
+                    .map(VaultEntry::getUUID)
+                    .collect(Collectors.toList()));
+            _entryListView.setUsageCounts(_usageCounts);
+            _entryListView.setCodeCache(_vaultManager.getVault().getCodeCache());
             _entryListView.addEntries(_vaultManager.getVault().getEntries());
             _entryListView.runEntriesAnimation();
             _loaded = true;
+
+            // marks the point at which the entries are shown in the startup timing
+            reportFullyDrawn();
         }
     }
 
@@ -761,12 +754,14 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
 
     @Override
     public void onEntryDrop(VaultEntry entry) {
-        saveVault();
+        scheduleSaveVault();
     }
 
     @Override
     public void onEntryChange(VaultEntry entry) {
-        saveAndBackupVault();
+        // the entry was changed in place (e.g. a HOTP counter increment), record it as a replacement
+        _vaultManager.getVault().replaceEntry(entry);
+        scheduleSaveAndBackupVault();
     }
 
     public void onEntryCopy(VaultEntry entry) {
@@ -809,7 +804,7 @@ public class MainActivity extends AegisActivity implements EntryListView.Listene
 
     private void copyEntryCode(VaultEntry entry) {
         ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-        ClipData clip = ClipData.newPlainText("text/plain", entry.getInfo().getOtp());
+        ClipData clip = ClipData.newPlainText("text/plain", _vaultManager.getVault().getCodeCache().getOtp(entry));
         clipboard.setPrimaryClip(clip);
     }
 
@@ -18,14 +18,13 @@ import androidx.recyclerview.widget.GridLayoutManager;
 
 import com.beemdevelopment.aegis.R;
 import com.beemdevelopment.aegis.icons.IconPack;
-import com.beemdevelopment.aegis.ui.glide.IconLoader;
+import com.beemdevelopment.aegis.ui.glide.GlideHelper;
 import com.beemdevelopment.aegis.ui.views.IconAdapter;
 import com.beemdevelopment.aegis.ui.views.IconRecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.ListPreloader;
 import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
@@ -69,19 +68,21 @@ public class IconPickerDialog {
             @NonNull
             @Override
             public List<IconPack.Icon> getPreloadItems(int position) {
+                if (adapter.getItemViewType(position) != R.layout.card_icon) {
+                    return Collections.emptyList();
+                }
+
                 IconPack.Icon icon = adapter.getIconAt(position);
+                if (icon instanceof IconAdapter.DummyIcon) {
+                    return Collections.emptyList();
+                }
                 return Collections.singletonList(icon);
             }
 
             @Nullable
             @Override
             public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull IconPack.Icon icon) {
-                return Glide.with(dialog.getContext())
-                        .asDrawable()
-                        .load(icon.getFile())
-                        .set(IconLoader.ICON_TYPE, icon.getIconType())
-                        .diskCacheStrategy(DiskCacheStrategy.NONE)
-                        .skipMemoryCache(false);
+                return GlideHelper.loadPickerIcon(Glide.with(dialog.getContext()), icon.getFile(), icon.getIconType());
             }
         }
 
@@ -111,6 +112,7 @@ public class IconPickerDialog {
         });
 
         ViewPreloadSizeProvider<IconPack.Icon> preloadSizeProvider = new ViewPreloadSizeProvider<>();
+        adapter.setPreloadSizeProvider(preloadSizeProvider);
         IconPreloadProvider modelProvider = new IconPreloadProvider();
         RecyclerViewPreloader<IconPack.Icon> preloader = new RecyclerViewPreloader<>(activity, modelProvider, preloadSizeProvider, 10);
         IconRecyclerView recyclerView = view.findViewById(R.id.list_icons);
@@ -40,7 +40,7 @@ public class AppearancePreferencesFragment extends PreferencesFragment {
             Dialogs.showSecureDialog(new AlertDialog.Builder(requireActivity())
                     .setTitle(R.string.preference_reset_usage_count)
                     .setMessage(R.string.preference_reset_usage_count_dialog)
-                    .setPositiveButton(android.R.string.yes, (dialog, which) -> _prefs.clearUsageCount())
+                    .setPositiveButton(android.R.string.yes, (dialog, which) -> _usageCounts.clear())
                     .setNegativeButton(android.R.string.no, null)
                     .create());
             return true;
@@ -134,9 +134,10 @@ public class AppearancePreferencesFragment extends PreferencesFragment {
         for (VaultEntry entry : _vaultManager.getVault().getEntries()) {
             if (!groups.contains(entry.getGroup())) {
                 entry.setGroup(null);
+                _vaultManager.getVault().replaceEntry(entry);
             }
         }
 
-        saveAndBackupVault();
+        scheduleSaveAndBackupVault();
     }
 }
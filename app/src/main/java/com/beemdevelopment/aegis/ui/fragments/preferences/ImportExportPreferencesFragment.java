@@ -309,6 +309,9 @@ public class ImportExportPreferencesFragment extends PreferencesFragment {
             File file;
             OutputStream outStream = null;
             try {
+                // make sure that any saves that are still pending end up on disk first
+                _vaultManager.flush();
+
                 file = File.createTempFile(VaultRepository.FILENAME_PREFIX_EXPORT + "-", ".json", getExportCacheDir());
                 outStream = new FileOutputStream(file);
                 cb.exportVault(outStream);
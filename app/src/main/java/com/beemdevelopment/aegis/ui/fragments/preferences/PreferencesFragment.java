@@ -11,6 +11,8 @@ import androidx.preference.PreferenceFragmentCompat;
 
 import com.beemdevelopment.aegis.Preferences;
 import com.beemdevelopment.aegis.R;
+import com.beemdevelopment.aegis.UsageCountStore;
+import com.beemdevelopment.aegis.helpers.FutureHelper;
 import com.beemdevelopment.aegis.ui.dialogs.Dialogs;
 import com.beemdevelopment.aegis.vault.VaultManager;
 import com.beemdevelopment.aegis.vault.VaultRepositoryException;
@@ -38,6 +40,9 @@ public abstract class PreferencesFragment extends PreferenceFragmentCompat {
     @Inject
     VaultManager _vaultManager;
 
+    @Inject
+    UsageCountStore _usageCounts;
+
     @Override
     @CallSuper
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
@@ -78,6 +83,18 @@ public abstract class PreferencesFragment extends PreferenceFragmentCompat {
         return true;
     }
 
+    /**
+     * Saves the vault in the background and schedules a backup afterwards. An error is shown
+     * if saving fails.
+     */
+    protected void scheduleSaveAndBackupVault() {
+        FutureHelper.onFailure(_vaultManager.scheduleSaveAndBackup(), t -> {
+            if (getContext() != null) {
+                Dialogs.showErrorDialog(getContext(), R.string.saving_error, t.toString());
+            }
+        });
+    }
+
     @NonNull
     protected <T extends Preference> T requirePreference(@NonNull CharSequence key) {
         T pref = findPreference(key);
@@ -0,0 +1,45 @@
+package com.beemdevelopment.aegis.ui.glide;
+
+import android.graphics.drawable.Drawable;
+
+import com.beemdevelopment.aegis.icons.IconType;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
+/**
+ * Builds the Glide requests for icons. Glide only finds an icon in its memory cache if it's
+ * requested with the exact same options and size as before. So a preload request and the
+ * request for the view it's meant for must be built in the same way, including the
+ * transformation that Glide would otherwise derive from the scale type of the view.
+ */
+public class GlideHelper {
+    private GlideHelper() {
+
+    }
+
+    /**
+     * Builds a request for an icon that's shown in one of the circular icon views, like the
+     * ones in the entry list. These always crop the image to fill the view.
+     */
+    public static RequestBuilder<Drawable> loadEntryIcon(RequestManager glide, Object model, IconType iconType) {
+        return loadIcon(glide, model, iconType).optionalCenterCrop();
+    }
+
+    /**
+     * Builds a request for an icon that's shown in the icon picker, which fits the image
+     * inside the view.
+     */
+    public static RequestBuilder<Drawable> loadPickerIcon(RequestManager glide, Object model, IconType iconType) {
+        return loadIcon(glide, model, iconType).optionalFitCenter();
+    }
+
+    private static RequestBuilder<Drawable> loadIcon(RequestManager glide, Object model, IconType iconType) {
+        // decoded icons are only kept in memory and never written to disk
+        return glide.asDrawable()
+                .load(model)
+                .set(IconLoader.ICON_TYPE, iconType)
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .skipMemoryCache(false);
+    }
+}
@@ -3,7 +3,7 @@ package com.beemdevelopment.aegis.ui.glide;
 import androidx.annotation.NonNull;
 
 import com.beemdevelopment.aegis.icons.IconType;
-import com.beemdevelopment.aegis.vault.VaultEntry;
+import com.beemdevelopment.aegis.vault.VaultEntryIcon;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Option;
@@ -12,32 +12,33 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoaderFactory;
 import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
 
 import java.nio.ByteBuffer;
 
-public class IconLoader implements ModelLoader<VaultEntry, ByteBuffer> {
+public class IconLoader implements ModelLoader<VaultEntryIcon, ByteBuffer> {
     public static final Option<IconType> ICON_TYPE = Option.memory("ICON_TYPE", IconType.INVALID);
 
     @Override
-    public LoadData<ByteBuffer> buildLoadData(@NonNull VaultEntry model, int width, int height, @NonNull Options options) {
-        return new LoadData<>(new UUIDKey(model.getUUID()), new Fetcher(model));
+    public LoadData<ByteBuffer> buildLoadData(@NonNull VaultEntryIcon model, int width, int height, @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model.getHashString()), new Fetcher(model));
     }
 
     @Override
-    public boolean handles(@NonNull VaultEntry model) {
+    public boolean handles(@NonNull VaultEntryIcon model) {
         return true;
     }
 
     public static class Fetcher implements DataFetcher<ByteBuffer> {
-        private final VaultEntry _model;
+        private final VaultEntryIcon _model;
 
-        private Fetcher(VaultEntry model) {
+        private Fetcher(VaultEntryIcon model) {
             _model = model;
         }
 
         @Override
         public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super ByteBuffer> callback) {
-            byte[] bytes = _model.getIcon();
+            byte[] bytes = _model.getBytes();
             ByteBuffer buf = ByteBuffer.wrap(bytes);
             callback.onDataReady(buf);
         }
@@ -61,14 +62,15 @@ public class IconLoader implements ModelLoader<VaultEntry, ByteBuffer> {
         @NonNull
         @Override
         public DataSource getDataSource() {
-            return DataSource.MEMORY_CACHE;
+            // the bytes are already in memory, but they still have to be decoded
+            return DataSource.LOCAL;
         }
     }
 
-    public static class Factory implements ModelLoaderFactory<VaultEntry, ByteBuffer> {
+    public static class Factory implements ModelLoaderFactory<VaultEntryIcon, ByteBuffer> {
         @NonNull
         @Override
-        public ModelLoader<VaultEntry, ByteBuffer> build(@NonNull MultiModelLoaderFactory unused) {
+        public ModelLoader<VaultEntryIcon, ByteBuffer> build(@NonNull MultiModelLoaderFactory unused) {
             return new IconLoader();
         }
 
@@ -1,21 +1,25 @@
 package com.beemdevelopment.aegis.ui.views;
 
 import android.os.Handler;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.beemdevelopment.aegis.SortCategory;
+import com.beemdevelopment.aegis.UsageCountStore;
 import com.beemdevelopment.aegis.ViewMode;
 import com.beemdevelopment.aegis.helpers.ItemTouchHelperAdapter;
 import com.beemdevelopment.aegis.otp.HotpInfo;
-import com.beemdevelopment.aegis.otp.OtpInfo;
 import com.beemdevelopment.aegis.otp.OtpInfoException;
 import com.beemdevelopment.aegis.otp.TotpInfo;
+import com.beemdevelopment.aegis.vault.OtpCodeCache;
+import com.beemdevelopment.aegis.vault.OtpCodePrefetcher;
 import com.beemdevelopment.aegis.vault.VaultEntry;
 
 import java.util.ArrayList;
@@ -23,8 +27,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -32,8 +39,12 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     private EntryListView _view;
     private List<VaultEntry> _entries;
     private List<VaultEntry> _shownEntries;
-    private List<VaultEntry> _selectedEntries;
-    private Map<UUID, Integer> _usageCounts;
+    private Map<UUID, VaultEntry> _entriesByUUID;
+    private PositionIndex _entryPositions;
+    private PositionIndex _shownPositions;
+    // the selected entries by UUID, in the order they were selected in
+    private Map<UUID, VaultEntry> _selectedEntries;
+    private UsageCountStore _usageCounts;
     private VaultEntry _focusedEntry;
     private int _codeGroupSize;
     private boolean _showAccountName;
@@ -48,8 +59,23 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     private String _searchFilter;
     private boolean _isPeriodUniform = true;
     private int _uniformPeriod = -1;
+    // the number of shown TOTP entries for every period
+    private final PeriodHistogram _periods = new PeriodHistogram();
     private Handler _dimHandler;
     private boolean _pauseFocused;
+    private OtpCodeCache _codeCache;
+    private OtpCodePrefetcher _prefetcher;
+    // the set of bound holders changes many times during a layout pass, so the prefetched
+    // entries are only updated once it has finished
+    private Handler _prefetchHandler;
+    private boolean _prefetchDirty;
+    private List<VaultEntry> _prefetchedEntries = new ArrayList<>();
+    private final EntrySearchIndex _searchIndex;
+    // the entries that pass the group filter, in sorted order, or null if they need to be collected again
+    private List<VaultEntry> _candidates;
+    private final EntryListDiffer _differ;
+    // incremented whenever _shownEntries is changed in place, so that stale diffs can be detected
+    private int _shownEntriesVersion;
 
     // keeps track of the viewholders that are currently bound
     private List<EntryHolder> _holders;
@@ -58,20 +84,98 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     public EntryAdapter(EntryListView view) {
         _entries = new ArrayList<>();
         _shownEntries = new ArrayList<>();
-        _selectedEntries = new ArrayList<>();
+        _entriesByUUID = new HashMap<>();
+        _entryPositions = new PositionIndex(_entries);
+        _shownPositions = new PositionIndex(_shownEntries);
+        _selectedEntries = new LinkedHashMap<>();
         _groupFilter = new ArrayList<>();
         _holders = new ArrayList<>();
         _dimHandler = new Handler();
+        _prefetchHandler = new Handler();
         _view = view;
+        _searchIndex = new EntrySearchIndex(new EntrySearchIndex.Listener() {
+            @Override
+            public List<VaultEntry> getSearchCandidates() {
+                return getCandidates();
+            }
+
+            @Override
+            public void onSearchResult(List<VaultEntry> entries) {
+                setShownEntries(entries);
+            }
+        });
+        _differ = new EntryListDiffer(this::onDiffResult);
+        setHasStableIds(true);
     }
 
     public void destroy() {
         for (EntryHolder holder : _holders) {
             holder.destroy();
         }
+        if (_prefetcher != null) {
+            _prefetcher.stop();
+            _prefetcher = null;
+        }
+        _prefetchHandler.removeCallbacksAndMessages(null);
+        _searchIndex.destroy();
+        _differ.destroy();
         _view = null;
     }
 
+    public void setCodeCache(OtpCodeCache codeCache) {
+        if (_codeCache == codeCache) {
+            return;
+        }
+
+        if (_prefetcher != null) {
+            _prefetcher.stop();
+        }
+        _codeCache = codeCache;
+        _prefetcher = new OtpCodePrefetcher(codeCache);
+        _prefetchedEntries = new ArrayList<>();
+        invalidatePrefetchedEntries();
+    }
+
+    /**
+     * Marks the set of entries that are on screen as changed. The prefetched entries are
+     * updated once the current layout pass has finished.
+     */
+    private void invalidatePrefetchedEntries() {
+        if (_prefetchDirty) {
+            return;
+        }
+
+        _prefetchDirty = true;
+        _prefetchHandler.post(this::updatePrefetchedEntries);
+    }
+
+    /**
+     * Makes sure that the codes of the next time step of the entries that are on screen are
+     * computed ahead of time, so that rotating them doesn't stall the main thread.
+     */
+    private void updatePrefetchedEntries() {
+        _prefetchDirty = false;
+        if (_prefetcher == null) {
+            return;
+        }
+
+        // scrolling back and forth often ends up with the same entries on screen
+        boolean changed = _prefetchedEntries.size() != _holders.size();
+        for (int i = 0; !changed && i < _holders.size(); i++) {
+            changed = _prefetchedEntries.get(i) != _holders.get(i).getEntry();
+        }
+        if (!changed) {
+            return;
+        }
+
+        List<VaultEntry> entries = new ArrayList<>(_holders.size());
+        for (EntryHolder holder : _holders) {
+            entries.add(holder.getEntry());
+        }
+        _prefetchedEntries = entries;
+        _prefetcher.setEntries(entries);
+    }
+
     public void setCodeGroupSize(int codeGroupeSize) {
         _codeGroupSize = codeGroupeSize;
     }
@@ -110,6 +214,10 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
 
     public int addEntry(VaultEntry entry) {
         _entries.add(entry);
+        _entriesByUUID.put(entry.getUUID(), entry);
+        _entryPositions.update(_entries.size() - 1);
+        invalidateCandidates();
+        _searchIndex.add(entry);
         if (isEntryFiltered(entry)) {
             return -1;
         }
@@ -119,25 +227,25 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
         if (comparator != null) {
             // insert the entry in the correct order
             // note: this assumes that _shownEntries has already been sorted
-            for (int i = 0; i < _shownEntries.size(); i++) {
-                if (comparator.compare(_shownEntries.get(i), entry) > 0) {
-                    _shownEntries.add(i, entry);
-                    notifyItemInserted(i);
-                    position = i;
-                    break;
-                }
+            int i = getSortedPosition(entry, comparator);
+            if (i < _shownEntries.size()) {
+                _shownEntries.add(i, entry);
+                _periods.add(entry);
+                _shownEntriesVersion++;
+                _shownPositions.invalidate();
+                notifyItemInserted(i);
+                position = i;
             }
         }
 
         if (position < 0){
             _shownEntries.add(entry);
+            _periods.add(entry);
+            _shownEntriesVersion++;
 
             position = getItemCount() - 1;
-            if (position == 0) {
-                notifyDataSetChanged();
-            } else {
-                notifyItemInserted(position);
-            }
+            _shownPositions.update(position);
+            notifyItemInserted(position);
         }
 
         _view.onListChange();
@@ -147,57 +255,140 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
 
     public void addEntries(Collection<VaultEntry> entries) {
         for (VaultEntry entry: entries) {
-            entry.setUsageCount(_usageCounts.containsKey(entry.getUUID()) ? _usageCounts.get(entry.getUUID()) : 0);
+            entry.setUsageCount(_usageCounts.getUsageCount(entry.getUUID()));
         }
 
         _entries.addAll(entries);
+        _entryPositions.invalidate();
+        for (VaultEntry entry : entries) {
+            _entriesByUUID.put(entry.getUUID(), entry);
+            _searchIndex.add(entry);
+        }
         updateShownEntries();
         checkPeriodUniformity(true);
     }
 
     public void removeEntry(VaultEntry entry) {
-        _entries.remove(entry);
+        removeEntries(Collections.singletonList(entry));
+    }
+
+    public void removeEntry(UUID uuid) {
+        VaultEntry entry = getEntryByUUID(uuid);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    /**
+     * Removes the given entries in a single pass over the list, regardless of how many
+     * entries there are.
+     */
+    public void removeEntries(Collection<VaultEntry> entries) {
+        Set<UUID> uuids = new HashSet<>(entries.size());
+        for (VaultEntry entry : entries) {
+            VaultEntry removed = _entriesByUUID.remove(entry.getUUID());
+            if (removed != null) {
+                uuids.add(removed.getUUID());
+                _searchIndex.remove(removed);
+            }
+        }
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        removeAll(_entries, uuids);
+        _entryPositions.invalidate();
+        invalidateCandidates();
 
-        if (_shownEntries.contains(entry)) {
-            int position = _shownEntries.indexOf(entry);
-            _shownEntries.remove(position);
-            notifyItemRemoved(position);
+        // notify the removals from the bottom up, so that the positions are still valid
+        int end = -1;
+        for (int i = _shownEntries.size() - 1; i >= -1; i--) {
+            boolean removed = i >= 0 && uuids.contains(_shownEntries.get(i).getUUID());
+            if (removed) {
+                _periods.remove(_shownEntries.get(i));
+            }
+            if (removed && end < 0) {
+                end = i;
+            } else if (!removed && end >= 0) {
+                notifyItemRangeRemoved(i + 1, end - i);
+                end = -1;
+            }
+        }
+        if (removeAll(_shownEntries, uuids)) {
+            _shownEntriesVersion++;
+            _shownPositions.invalidate();
         }
 
         _view.onListChange();
         checkPeriodUniformity();
     }
 
-    public void removeEntry(UUID uuid) {
-        VaultEntry entry = getEntryByUUID(uuid);
-        removeEntry(entry);
+    private static boolean removeAll(List<VaultEntry> entries, Set<UUID> uuids) {
+        List<VaultEntry> kept = new ArrayList<>(entries.size());
+        for (VaultEntry entry : entries) {
+            if (!uuids.contains(entry.getUUID())) {
+                kept.add(entry);
+            }
+        }
+        if (kept.size() == entries.size()) {
+            return false;
+        }
+
+        entries.clear();
+        entries.addAll(kept);
+        return true;
     }
 
     public void clearEntries() {
         _entries.clear();
+        _entriesByUUID.clear();
+        _entryPositions.invalidate();
+        invalidateCandidates();
+        _searchIndex.clear();
         _shownEntries.clear();
+        _periods.clear();
+        _shownEntriesVersion++;
+        _shownPositions.invalidate();
+        _differ.cancel();
         notifyDataSetChanged();
         checkPeriodUniformity();
     }
 
     public void replaceEntry(UUID uuid, VaultEntry newEntry) {
         VaultEntry oldEntry = getEntryByUUID(uuid);
-        _entries.set(_entries.indexOf(oldEntry), newEntry);
+        int index = _entryPositions.indexOf(uuid);
+        _entries.set(index, newEntry);
+        _entryPositions.update(index);
+        _entriesByUUID.put(uuid, newEntry);
+        invalidateCandidates();
+        _searchIndex.remove(oldEntry);
+        _searchIndex.add(newEntry);
+        if (_selectedEntries.containsKey(uuid)) {
+            _selectedEntries.put(uuid, newEntry);
+        }
 
-        if (_shownEntries.contains(oldEntry)) {
-            int position = _shownEntries.indexOf(oldEntry);
+        int position = _shownPositions.indexOf(uuid);
+        if (position >= 0) {
+            _shownEntriesVersion++;
+            _periods.remove(_shownEntries.get(position));
             if (isEntryFiltered(newEntry)) {
                 _shownEntries.remove(position);
+                _shownPositions.invalidate();
                 notifyItemRemoved(position);
             } else {
                 _shownEntries.set(position, newEntry);
+                _periods.add(newEntry);
+                _shownPositions.update(position);
                 notifyItemChanged(position);
                 if (_sortCategory != null) {
                     Comparator<VaultEntry> comparator = _sortCategory.getComparator();
                     if (comparator != null) {
-                        Collections.sort(_shownEntries, comparator);
-                        int newPosition = Collections.binarySearch(_shownEntries, newEntry, comparator);
+                        // the rest of the list is still sorted, so only the new entry has to be moved
+                        _shownEntries.remove(position);
+                        int newPosition = getSortedPosition(newEntry, comparator);
+                        _shownEntries.add(newPosition, newEntry);
                         if (position != newPosition) {
+                            _shownPositions.invalidate();
                             notifyItemMoved(position, newPosition);
                         }
                     }
@@ -205,39 +396,72 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
             }
         } else if (!isEntryFiltered(newEntry)) {
             _shownEntries.add(newEntry);
+            _periods.add(newEntry);
+            _shownEntriesVersion++;
 
-            int position = getItemCount() - 1;
+            position = getItemCount() - 1;
+            _shownPositions.update(position);
             notifyItemInserted(position);
         }
         checkPeriodUniformity();
     }
 
     private VaultEntry getEntryByUUID(UUID uuid) {
-        for (VaultEntry entry : _entries) {
-            if (entry.getUUID().equals(uuid)) {
-                return entry;
+        return _entriesByUUID.get(uuid);
+    }
+
+    /**
+     * Returns the position at which the given entry should be inserted into the shown entries,
+     * which must already be sorted with the given comparator. Entries that compare equal to the
+     * given entry stay in front of it.
+     */
+    private int getSortedPosition(VaultEntry entry, Comparator<VaultEntry> comparator) {
+        int low = 0;
+        int high = _shownEntries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(_shownEntries.get(mid), entry) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
         }
-
-        return null;
+        return low;
     }
 
     private boolean isEntryFiltered(VaultEntry entry) {
-        String group = entry.getGroup();
-        String issuer = entry.getIssuer().toLowerCase();
-        String name = entry.getName().toLowerCase();
+        return isEntryGroupFiltered(entry) || !_searchIndex.matches(entry, _searchFilter);
+    }
 
-        if (!_groupFilter.isEmpty()) {
-            if (!_groupFilter.contains(group)) {
-                return true;
+    private boolean isEntryGroupFiltered(VaultEntry entry) {
+        return !_groupFilter.isEmpty() && !_groupFilter.contains(entry.getGroup());
+    }
+
+    /**
+     * Returns the entries that pass the group filter, in sorted order. These are the
+     * candidates for the search filter.
+     */
+    private List<VaultEntry> getCandidates() {
+        if (_candidates == null) {
+            _candidates = new ArrayList<>();
+            for (VaultEntry entry : _entries) {
+                if (!isEntryGroupFiltered(entry)) {
+                    _candidates.add(entry);
+                }
             }
-        }
 
-        if (_searchFilter == null) {
-            return false;
+            Comparator<VaultEntry> comparator = _sortCategory.getComparator();
+            if (comparator != null) {
+                Collections.sort(_candidates, comparator);
+            }
         }
 
-        return !issuer.contains(_searchFilter) && !name.contains(_searchFilter);
+        return _candidates;
+    }
+
+    private void invalidateCandidates() {
+        _candidates = null;
+        _searchIndex.invalidate();
     }
 
     public void refresh(boolean hard) {
@@ -257,7 +481,6 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
 
         _groupFilter = groups;
         updateShownEntries();
-        checkPeriodUniformity();
     }
 
     public void setSortCategory(SortCategory category, boolean apply) {
@@ -272,38 +495,71 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     }
 
     public void setSearchFilter(String search) {
-        _searchFilter = (search != null && !search.isEmpty()) ? search.toLowerCase() : null;
-        updateShownEntries();
+        String filter = search != null ? EntrySearchIndex.normalize(search) : null;
+        _searchFilter = (filter != null && !filter.isEmpty()) ? filter : null;
+        _searchIndex.searchAsync(_searchFilter);
     }
 
     private void updateShownEntries() {
-        // clear the list of shown entries first
-        _shownEntries.clear();
+        // the sort order or the group filter may have changed, so collect the candidates again
+        invalidateCandidates();
+        setShownEntries(_searchIndex.search(_searchFilter));
+    }
+
+    /**
+     * Replaces the shown entries with the given list. If both the old and the new list contain
+     * entries, the difference between them is calculated on a background thread and only the
+     * rows that changed are updated once it's done.
+     */
+    private void setShownEntries(List<VaultEntry> entries) {
+        if (_shownEntries.isEmpty() || entries.isEmpty()) {
+            // there's nothing to diff, so skip the round trip to the background thread
+            _differ.cancel();
+            int oldCount = _shownEntries.size();
+            _shownEntries.clear();
+            _shownEntries.addAll(entries);
+            _periods.setEntries(entries);
+            _shownEntriesVersion++;
+            _shownPositions.invalidate();
+            notifyItemRangeRemoved(0, oldCount);
+            notifyItemRangeInserted(0, entries.size());
+            onShownEntriesChanged();
+            return;
+        }
 
-        // add entries back that are not filtered out
-        for (VaultEntry entry : _entries) {
-            if (!isEntryFiltered(entry)) {
-                _shownEntries.add(entry);
-            }
+        _differ.submit(new ArrayList<>(_shownEntries), entries, _shownEntriesVersion);
+    }
+
+    private void onDiffResult(List<VaultEntry> entries, DiffUtil.DiffResult result, int version) {
+        if (_view == null) {
+            return;
         }
 
-        // sort the remaining list of entries
-        Comparator<VaultEntry> comparator = _sortCategory.getComparator();
-        if (comparator != null) {
-            Collections.sort(_shownEntries, comparator);
+        // the shown entries were changed while the diff was calculated, so the result no longer applies
+        if (version != _shownEntriesVersion) {
+            setShownEntries(_searchIndex.search(_searchFilter));
+            return;
         }
 
+        _shownEntries.clear();
+        _shownEntries.addAll(entries);
+        _periods.setEntries(entries);
+        _shownEntriesVersion++;
+        _shownPositions.invalidate();
+        result.dispatchUpdatesTo(this);
+        onShownEntriesChanged();
+    }
+
+    private void onShownEntriesChanged() {
         _view.onListChange();
-        notifyDataSetChanged();
+        checkPeriodUniformity();
     }
 
     public void setViewMode(ViewMode viewMode) {
         _viewMode = viewMode;
     }
 
-    public void setUsageCounts(Map<UUID, Integer> usageCounts) { _usageCounts = usageCounts; }
-
-    public Map<UUID, Integer> getUsageCounts() { return _usageCounts; }
+    public void setUsageCounts(UsageCountStore usageCounts) { _usageCounts = usageCounts; }
 
     public void setGroups(TreeSet<String> groups) {
         _view.setGroups(groups);
@@ -337,9 +593,21 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
         // update our side of things
         Collections.swap(_entries, firstPosition, secondPosition);
         Collections.swap(_shownEntries, firstPosition, secondPosition);
+        _entryPositions.update(firstPosition);
+        _entryPositions.update(secondPosition);
+        _shownPositions.update(firstPosition);
+        _shownPositions.update(secondPosition);
+        _shownEntriesVersion++;
+        invalidateCandidates();
         notifyItemMoved(firstPosition, secondPosition);
     }
 
+    @Override
+    public long getItemId(int position) {
+        UUID uuid = _shownEntries.get(position).getUUID();
+        return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+    }
+
     @Override
     public int getItemViewType(int position) {
         return _viewMode.getLayoutId();
@@ -358,6 +626,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     public void onViewRecycled(EntryHolder holder) {
         holder.stopRefreshLoop();
         _holders.remove(holder);
+        invalidatePrefetchedEntries();
     }
 
     @Override
@@ -368,8 +637,8 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
         boolean paused = _pauseFocused && entry == _focusedEntry;
         boolean dimmed = (_highlightEntry || _tempHighlightEntry) && _focusedEntry != null && _focusedEntry != entry;
         boolean showProgress = entry.getInfo() instanceof TotpInfo && ((TotpInfo) entry.getInfo()).getPeriod() != getMostFrequentPeriod();
-        holder.setData(entry, _codeGroupSize, _showAccountName, showProgress, hidden, paused, dimmed);
-        holder.setFocused(_selectedEntries.contains(entry));
+        holder.setData(entry, _codeCache, _codeGroupSize, _showAccountName, showProgress, hidden, paused, dimmed);
+        holder.setFocused(_selectedEntries.containsKey(entry.getUUID()));
         holder.loadIcon(_view);
 
         holder.itemView.setOnClickListener(new View.OnClickListener() {
@@ -394,7 +663,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
 
                     incrementUsageCount(entry);
                 } else {
-                    if (_selectedEntries.contains(entry)) {
+                    if (_selectedEntries.containsKey(entry.getUUID())) {
                         _view.onDeselect(entry);
                         removeSelectedEntry(entry);
                         holder.setFocusedAndAnimate(false);
@@ -421,7 +690,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
                 boolean returnVal = _view.onLongEntryClick(_shownEntries.get(position));
 
                 boolean dragEnabled = _selectedEntries.size() == 0
-                        || _selectedEntries.size() == 1 && _selectedEntries.get(0) == holder.getEntry();
+                        || getSingleSelectedEntry() == holder.getEntry();
                 if (dragEnabled && isDragAndDropAllowed()) {
                     _view.startDrag(_dragHandleHolder);
                 }
@@ -434,8 +703,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
             public boolean onTouch(View v, MotionEvent event) {
                 // Start drag if this is the only item selected
                 if (event.getActionMasked() == MotionEvent.ACTION_MOVE
-                        && _selectedEntries.size() == 1
-                        && _selectedEntries.get(0) == holder.getEntry()
+                        && getSingleSelectedEntry() == holder.getEntry()
                         && isDragAndDropAllowed()) {
                     _view.startDrag(_dragHandleHolder);
                     return true;
@@ -462,7 +730,11 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
             }
         });
 
-        _holders.add(holder);
+        // holders that are rebound without being recycled first are already tracked
+        if (!_holders.contains(holder)) {
+            _holders.add(holder);
+        }
+        invalidatePrefetchedEntries();
     }
 
     private void checkPeriodUniformity() {
@@ -471,18 +743,23 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
 
     private void checkPeriodUniformity(boolean force) {
         int mostFrequentPeriod = getMostFrequentPeriod();
-        boolean uniform = isPeriodUniform();
+        boolean uniform = isPeriodUniform(mostFrequentPeriod);
 
         if (!force && uniform == _isPeriodUniform && mostFrequentPeriod == _uniformPeriod) {
             return;
         }
 
+        int oldPeriod = _uniformPeriod;
         _isPeriodUniform = uniform;
         _uniformPeriod = mostFrequentPeriod;
 
         for (EntryHolder holder : _holders) {
             if ((holder.getEntry().getInfo() instanceof TotpInfo)) {
-                holder.setShowProgress(((TotpInfo) holder.getEntry().getInfo()).getPeriod() != mostFrequentPeriod);
+                // only the entries with the old or the new most frequent period change
+                int period = ((TotpInfo) holder.getEntry().getInfo()).getPeriod();
+                if (force || period == oldPeriod || period == mostFrequentPeriod) {
+                    holder.setShowProgress(period != mostFrequentPeriod);
+                }
             }
         }
 
@@ -490,38 +767,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     }
 
     public int getMostFrequentPeriod() {
-        List<TotpInfo> infos = new ArrayList<>();
-        for (VaultEntry entry : _shownEntries) {
-            OtpInfo info = entry.getInfo();
-            if (info instanceof TotpInfo) {
-                infos.add((TotpInfo) info);
-            }
-        }
-
-        if (infos.isEmpty()) {
-            return -1;
-        }
-
-        Map<Integer, Integer> occurrences = new HashMap<>();
-        for (TotpInfo info : infos) {
-            int period = info.getPeriod();
-            if(occurrences.containsKey(period)) {
-                occurrences.put(period, occurrences.get(period) + 1);
-            } else {
-                occurrences.put(period, 1);
-            }
-        }
-
-        Integer maxValue = 0;
-        Integer maxKey = 0;
-        for (Map.Entry<Integer, Integer> entry : occurrences.entrySet()){
-            if(entry.getValue() > maxValue){
-                maxValue = entry.getValue();
-                maxKey = entry.getKey();
-            }
-        }
-
-        return maxValue > 1 ? maxKey : -1;
+        return _periods.getMostFrequent();
     }
 
     public void focusEntry(VaultEntry entry, int secondsToFocus) {
@@ -581,10 +827,10 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
             // Find and enable dragging for the single selected EntryHolder
             // Not nice but this is the best method I could find
             for (int i = 0; i < _holders.size(); i++) {
-                if (_holders.get(i).getEntry() == _selectedEntries.get(0)) {
+                if (_holders.get(i).getEntry() == getSingleSelectedEntry()) {
                     _dragHandleHolder = _holders.get(i);
                     _dragHandleHolder.setShowDragHandle(true);
-                    _view.setSelectedEntry(_selectedEntries.get(0));
+                    _view.setSelectedEntry(getSingleSelectedEntry());
                     return;
                 }
             }
@@ -596,8 +842,15 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
         }
     }
 
+    /**
+     * Returns the selected entry if exactly one entry is selected, and null otherwise.
+     */
+    private VaultEntry getSingleSelectedEntry() {
+        return _selectedEntries.size() == 1 ? _selectedEntries.values().iterator().next() : null;
+    }
+
     public void removeSelectedEntry(VaultEntry entry) {
-        _selectedEntries.remove(entry);
+        _selectedEntries.remove(entry.getUUID());
         updateDraggableStatus();
     }
 
@@ -606,12 +859,12 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
             resetFocus();
         }
 
-        _selectedEntries.add(entry);
+        _selectedEntries.put(entry.getUUID(), entry);
         updateDraggableStatus();
     }
 
     public void deselectAllEntries() {
-        for (VaultEntry entry: _selectedEntries) {
+        for (VaultEntry entry: _selectedEntries.values()) {
             for (EntryHolder holder : _holders) {
                 if (holder.getEntry() == entry) {
                     holder.setFocusedAndAnimate(false);
@@ -626,12 +879,7 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
     }
 
     private void incrementUsageCount(VaultEntry entry) {
-        if (!_usageCounts.containsKey(entry.getUUID())) {
-            _usageCounts.put(entry.getUUID(), 1);
-        } else {
-            int usageCount = _usageCounts.get(entry.getUUID());
-            _usageCounts.put(entry.getUUID(), ++usageCount);
-        }
+        _usageCounts.incrementUsageCount(entry.getUUID());
     }
 
     public boolean isDragAndDropAllowed() {
@@ -651,6 +899,105 @@ public class EntryAdapter extends RecyclerView.Adapter<EntryHolder> implements I
         return _shownEntries.size();
     }
 
+    /**
+     * Counts the TOTP entries in a list by period, so that the most frequent period can be
+     * determined without going over the list again. There are rarely more than a few
+     * distinct periods, so finding the most frequent one is cheap.
+     */
+    private static class PeriodHistogram {
+        private final SparseIntArray _counts = new SparseIntArray();
+        // the most frequent period, or null if it needs to be determined again
+        private Integer _mostFrequent;
+
+        private void add(VaultEntry entry) {
+            if (entry.getInfo() instanceof TotpInfo) {
+                int period = ((TotpInfo) entry.getInfo()).getPeriod();
+                _counts.put(period, _counts.get(period) + 1);
+                _mostFrequent = null;
+            }
+        }
+
+        private void remove(VaultEntry entry) {
+            if (entry.getInfo() instanceof TotpInfo) {
+                int period = ((TotpInfo) entry.getInfo()).getPeriod();
+                int count = _counts.get(period) - 1;
+                if (count > 0) {
+                    _counts.put(period, count);
+                } else {
+                    _counts.delete(period);
+                }
+                _mostFrequent = null;
+            }
+        }
+
+        private void setEntries(List<VaultEntry> entries) {
+            clear();
+            for (VaultEntry entry : entries) {
+                add(entry);
+            }
+        }
+
+        private void clear() {
+            _counts.clear();
+            _mostFrequent = null;
+        }
+
+        /**
+         * Returns the most frequent period, or -1 if no period occurs more than once.
+         */
+        private int getMostFrequent() {
+            if (_mostFrequent == null) {
+                int maxValue = 0;
+                int maxKey = 0;
+                for (int i = 0; i < _counts.size(); i++) {
+                    if (_counts.valueAt(i) > maxValue) {
+                        maxValue = _counts.valueAt(i);
+                        maxKey = _counts.keyAt(i);
+                    }
+                }
+                _mostFrequent = maxValue > 1 ? maxKey : -1;
+            }
+
+            return _mostFrequent;
+        }
+    }
+
+    /**
+     * Maps the UUIDs of the entries in a list to their position in that list. Changes that only
+     * replace or swap entries can be applied in place with update. Changes that shift entries
+     * around invalidate the index, after which it's rebuilt on the next lookup.
+     */
+    private static class PositionIndex {
+        private final List<VaultEntry> _list;
+        private Map<UUID, Integer> _positions;
+
+        private PositionIndex(List<VaultEntry> list) {
+            _list = list;
+        }
+
+        private int indexOf(UUID uuid) {
+            if (_positions == null) {
+                _positions = new HashMap<>(_list.size());
+                for (int i = 0; i < _list.size(); i++) {
+                    _positions.put(_list.get(i).getUUID(), i);
+                }
+            }
+
+            Integer position = _positions.get(uuid);
+            return position != null ? position : -1;
+        }
+
+        private void update(int position) {
+            if (_positions != null) {
+                _positions.put(_list.get(position).getUUID(), position);
+            }
+        }
+
+        private void invalidate() {
+            _positions = null;
+        }
+    }
+
     public interface Listener {
         void onEntryClick(VaultEntry entry);
         boolean onLongEntryClick(VaultEntry entry);
@@ -14,19 +14,17 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.amulyakhare.textdrawable.TextDrawable;
 import com.beemdevelopment.aegis.R;
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
 import com.beemdevelopment.aegis.helpers.IconViewHelper;
+import com.beemdevelopment.aegis.helpers.PeriodTicker;
 import com.beemdevelopment.aegis.helpers.TextDrawableHelper;
 import com.beemdevelopment.aegis.helpers.ThemeHelper;
-import com.beemdevelopment.aegis.helpers.UiRefresher;
 import com.beemdevelopment.aegis.otp.HotpInfo;
-import com.beemdevelopment.aegis.otp.OtpInfo;
-import com.beemdevelopment.aegis.otp.SteamInfo;
 import com.beemdevelopment.aegis.otp.TotpInfo;
-import com.beemdevelopment.aegis.otp.YandexInfo;
-import com.beemdevelopment.aegis.ui.glide.IconLoader;
+import com.beemdevelopment.aegis.ui.glide.GlideHelper;
+import com.beemdevelopment.aegis.vault.OtpCodeCache;
 import com.beemdevelopment.aegis.vault.VaultEntry;
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
 public class EntryHolder extends RecyclerView.ViewHolder {
     private static final float DEFAULT_ALPHA = 1.0f;
@@ -39,6 +37,7 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     private TextView _profileCopied;
     private ImageView _profileDrawable;
     private VaultEntry _entry;
+    private OtpCodeCache _codeCache;
     private ImageView _buttonRefresh;
     private RelativeLayout _description;
     private ImageView _dragHandle;
@@ -47,6 +46,7 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     private final Handler _selectedHandler;
 
     private int _codeGroupSize = 6;
+    private final OtpFormatter _formatter = new OtpFormatter();
 
     private boolean _hidden;
     private boolean _paused;
@@ -54,7 +54,9 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     private TotpProgressBar _progressBar;
     private View _view;
 
-    private UiRefresher _refresher;
+    // the period this holder is subscribed to the ticker for, or 0 if it isn't subscribed
+    private int _tickPeriod;
+    private final PeriodTicker.Listener _tickListener = this::refreshCode;
     private Handler _animationHandler;
 
     private Animation _scaleIn;
@@ -85,24 +87,11 @@ public class EntryHolder extends RecyclerView.ViewHolder {
 
         _scaleIn = AnimationUtils.loadAnimation(view.getContext(), R.anim.item_scale_in);
         _scaleOut = AnimationUtils.loadAnimation(view.getContext(), R.anim.item_scale_out);
-
-        _refresher = new UiRefresher(new UiRefresher.Listener() {
-            @Override
-            public void onRefresh() {
-                if (!_hidden && !_paused) {
-                    refreshCode();
-                }
-            }
-
-            @Override
-            public long getMillisTillNextRefresh() {
-                return ((TotpInfo) _entry.getInfo()).getMillisTillNextRotation();
-            }
-        });
     }
 
-    public void setData(VaultEntry entry, int codeGroupSize, boolean showAccountName, boolean showProgress, boolean hidden, boolean paused, boolean dimmed) {
+    public void setData(VaultEntry entry, OtpCodeCache codeCache, int codeGroupSize, boolean showAccountName, boolean showProgress, boolean hidden, boolean paused, boolean dimmed) {
         _entry = entry;
+        _codeCache = codeCache;
         _hidden = hidden;
         _paused = paused;
 
@@ -110,6 +99,7 @@ public class EntryHolder extends RecyclerView.ViewHolder {
             throw new IllegalArgumentException("Code group size cannot be zero or negative");
 
         _codeGroupSize = codeGroupSize;
+        _formatter.reset();
 
         _selected.clearAnimation();
         _selected.setVisibility(View.GONE);
@@ -118,6 +108,7 @@ public class EntryHolder extends RecyclerView.ViewHolder {
 
         // only show the progress bar if there is no uniform period and the entry type is TotpInfo
         setShowProgress(showProgress);
+        startRefreshLoop();
 
         // only show the button if this entry is of type HotpInfo
         _buttonRefresh.setVisibility(entry.getInfo() instanceof HotpInfo ? View.VISIBLE : View.GONE);
@@ -146,12 +137,7 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     public void loadIcon(Fragment fragment) {
         if (_entry.hasIcon()) {
             IconViewHelper.setLayerType(_profileDrawable, _entry.getIconType());
-            Glide.with(fragment)
-                .asDrawable()
-                .load(_entry)
-                .set(IconLoader.ICON_TYPE, _entry.getIconType())
-                .diskCacheStrategy(DiskCacheStrategy.NONE)
-                .skipMemoryCache(false)
+            GlideHelper.loadEntryIcon(Glide.with(fragment), _entry.getIcon(), _entry.getIconType())
                 .into(_profileDrawable);
         } else {
             TextDrawable drawable = TextDrawableHelper.generate(_entry.getIssuer(), _entry.getName(), _profileDrawable);
@@ -183,9 +169,9 @@ public class EntryHolder extends RecyclerView.ViewHolder {
         _progressBar.setVisibility(showProgress ? View.VISIBLE : View.GONE);
         if (showProgress) {
             _progressBar.setPeriod(((TotpInfo) _entry.getInfo()).getPeriod());
-            startRefreshLoop();
+            _progressBar.start();
         } else {
-            stopRefreshLoop();
+            _progressBar.stop();
         }
     }
 
@@ -211,21 +197,39 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     }
 
     public void destroy() {
-        _refresher.destroy();
+        stopRefreshLoop();
     }
 
-    public void startRefreshLoop() {
-        _refresher.start();
-        _progressBar.start();
+    /**
+     * Subscribes to the ticker for the period of the entry, so that the code is refreshed
+     * every time it rotates. This has no effect for entries that aren't time-based.
+     */
+    private void startRefreshLoop() {
+        int period = _entry.getInfo() instanceof TotpInfo ? ((TotpInfo) _entry.getInfo()).getPeriod() : 0;
+        if (period == _tickPeriod) {
+            return;
+        }
+
+        unsubscribeTicker();
+        if (period != 0) {
+            PeriodTicker.getInstance().subscribe(period, _tickListener);
+            _tickPeriod = period;
+        }
     }
 
     public void stopRefreshLoop() {
-        _refresher.stop();
+        unsubscribeTicker();
         _progressBar.stop();
     }
 
+    private void unsubscribeTicker() {
+        if (_tickPeriod != 0) {
+            PeriodTicker.getInstance().unsubscribe(_tickPeriod, _tickListener);
+            _tickPeriod = 0;
+        }
+    }
+
     public void refresh() {
-        _progressBar.restart();
         refreshCode();
     }
 
@@ -236,27 +240,15 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     }
 
     private void updateCode() {
-        OtpInfo info = _entry.getInfo();
-
-        String otp = info.getOtp();
-        if (!(info instanceof SteamInfo || info instanceof YandexInfo)) {
-            otp = formatCode(otp);
+        // Steam and Yandex codes are never split into groups
+        if (_codeCache.formatOtp(_entry, _formatter, _codeGroupSize)) {
+            setCodeText();
         }
-
-        _profileCode.setText(otp);
     }
 
-    private String formatCode(String code) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < code.length(); i++) {
-            if (i != 0 && i % _codeGroupSize == 0) {
-                sb.append(" ");
-            }
-            sb.append(code.charAt(i));
-        }
-        code = sb.toString();
-
-        return code;
+    private void setCodeText() {
+        // the formatter never modifies the array that's currently displayed, so it's safe to hand it to the TextView
+        _profileCode.setText(_formatter.getChars(), 0, _formatter.getLength());
     }
 
     public void revealCode() {
@@ -265,9 +257,9 @@ public class EntryHolder extends RecyclerView.ViewHolder {
     }
 
     public void hideCode() {
-        String hiddenText = new String(new char[_entry.getInfo().getDigits()]).replace("\0", Character.toString(HIDDEN_CHAR));
-        hiddenText = formatCode(hiddenText);
-        _profileCode.setText(hiddenText);
+        if (_formatter.setHidden(HIDDEN_CHAR, _entry.getInfo().getDigits(), _codeGroupSize)) {
+            setCodeText();
+        }
         _hidden = true;
     }
 
@@ -0,0 +1,109 @@
+package com.beemdevelopment.aegis.ui.views;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.beemdevelopment.aegis.vault.VaultEntry;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calculates the difference between two lists of entries on a background thread, so that
+ * EntryAdapter only has to rebind the rows that actually changed. Entries are identified by
+ * their UUID. An entry is considered to be unchanged if it's still the same instance, because
+ * EntryAdapter replaces the instance whenever an entry is edited.
+ *
+ * Only the result of the most recent call to submit is passed to the listener, on the main
+ * thread. It's up to the listener to check whether the list the difference was calculated
+ * against is still the one that's shown.
+ */
+class EntryListDiffer {
+    private final Listener _listener;
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+
+    // incremented for every diff, so that the results of superseded diffs are dropped
+    private int _seq;
+
+    EntryListDiffer(Listener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Calculates the difference between the given lists on a background thread. Neither list
+     * may be modified afterwards. The version is passed back to the listener as is.
+     */
+    void submit(List<VaultEntry> oldEntries, List<VaultEntry> newEntries, int version) {
+        if (_executor.isShutdown()) {
+            return;
+        }
+
+        int seq = ++_seq;
+        _executor.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new Callback(oldEntries, newEntries));
+            _handler.post(() -> publish(seq, newEntries, result, version));
+        });
+    }
+
+    /**
+     * Drops the result of the diff that's currently being calculated, if any.
+     */
+    void cancel() {
+        _seq++;
+    }
+
+    void destroy() {
+        cancel();
+        _executor.shutdownNow();
+    }
+
+    private void publish(int seq, List<VaultEntry> entries, DiffUtil.DiffResult result, int version) {
+        if (seq != _seq) {
+            return;
+        }
+
+        _listener.onDiffResult(entries, result, version);
+    }
+
+    private static class Callback extends DiffUtil.Callback {
+        private final List<VaultEntry> _oldEntries;
+        private final List<VaultEntry> _newEntries;
+
+        private Callback(List<VaultEntry> oldEntries, List<VaultEntry> newEntries) {
+            _oldEntries = oldEntries;
+            _newEntries = newEntries;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return _oldEntries.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return _newEntries.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return _oldEntries.get(oldItemPosition).getUUID().equals(_newEntries.get(newItemPosition).getUUID());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return _oldEntries.get(oldItemPosition) == _newEntries.get(newItemPosition);
+        }
+    }
+
+    interface Listener {
+        /**
+         * Called on the main thread with the new list of entries and the difference between it
+         * and the old one, along with the version that was passed to submit.
+         */
+        void onDiffResult(List<VaultEntry> entries, DiffUtil.DiffResult result, int version);
+    }
+}
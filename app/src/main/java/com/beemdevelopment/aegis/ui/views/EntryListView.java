@@ -24,19 +24,19 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.beemdevelopment.aegis.R;
 import com.beemdevelopment.aegis.SortCategory;
+import com.beemdevelopment.aegis.UsageCountStore;
 import com.beemdevelopment.aegis.ViewMode;
 import com.beemdevelopment.aegis.helpers.MetricsHelper;
+import com.beemdevelopment.aegis.helpers.PeriodTicker;
 import com.beemdevelopment.aegis.helpers.SimpleItemTouchHelperCallback;
-import com.beemdevelopment.aegis.helpers.UiRefresher;
-import com.beemdevelopment.aegis.otp.TotpInfo;
 import com.beemdevelopment.aegis.ui.dialogs.Dialogs;
-import com.beemdevelopment.aegis.ui.glide.IconLoader;
+import com.beemdevelopment.aegis.ui.glide.GlideHelper;
+import com.beemdevelopment.aegis.vault.OtpCodeCache;
 import com.beemdevelopment.aegis.vault.VaultEntry;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.ListPreloader;
 import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.chip.Chip;
@@ -45,7 +45,6 @@ import com.google.android.material.chip.ChipGroup;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -68,8 +67,6 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
     private List<String> _groupFilter;
     private List<String> _prefGroupFilter;
 
-    private UiRefresher _refresher;
-
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -122,18 +119,6 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         LayoutAnimationController animation = AnimationUtils.loadLayoutAnimation(requireContext(), resId);
         _recyclerView.setLayoutAnimation(animation);
 
-        _refresher = new UiRefresher(new UiRefresher.Listener() {
-            @Override
-            public void onRefresh() {
-                refresh(false);
-            }
-
-            @Override
-            public long getMillisTillNextRefresh() {
-                return TotpInfo.getMillisTillNextRotation(_adapter.getMostFrequentPeriod());
-            }
-        });
-
         _emptyStateView = view.findViewById(R.id.vEmptyList);
         return view;
     }
@@ -142,9 +127,22 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         _preloadSizeProvider.setView(view);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        // the codes and progress bars don't need to be updated while the list isn't visible
+        PeriodTicker.getInstance().resume();
+    }
+
+    @Override
+    public void onStop() {
+        PeriodTicker.getInstance().pause();
+        super.onStop();
+    }
+
     @Override
     public void onDestroyView() {
-        _refresher.destroy();
+        _progressBar.stop();
         super.onDestroyView();
     }
 
@@ -188,14 +186,10 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         }
     }
 
-    public void setUsageCounts(Map<UUID, Integer> usageCounts) {
+    public void setUsageCounts(UsageCountStore usageCounts) {
         _adapter.setUsageCounts(usageCounts);
     }
 
-    public Map<UUID, Integer> getUsageCounts() {
-        return _adapter.getUsageCounts();
-    }
-
     public void setSearchFilter(String search) {
         _adapter.setSearchFilter(search);
         _touchCallback.setIsLongPressDragEnabled(_adapter.isDragAndDropAllowed());
@@ -216,10 +210,6 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
     }
 
     public void refresh(boolean hard) {
-        if (_showProgress) {
-            _progressBar.restart();
-        }
-
         _adapter.refresh(hard);
     }
 
@@ -270,11 +260,9 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
             _progressBar.setVisibility(View.VISIBLE);
             _progressBar.setPeriod(period);
             _progressBar.start();
-            _refresher.start();
         } else {
             _progressBar.setVisibility(View.GONE);
             _progressBar.stop();
-            _refresher.stop();
         }
     }
 
@@ -285,6 +273,10 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         _prefGroupFilter = groupFilter;
     }
 
+    public void setCodeCache(OtpCodeCache codeCache) {
+        _adapter.setCodeCache(codeCache);
+    }
+
     public void setCodeGroupSize(int codeGrouping) {
         _adapter.setCodeGroupSize(codeGrouping);
     }
@@ -371,6 +363,11 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         updateEmptyState();
     }
 
+    public void removeEntries(Collection<VaultEntry> entries) {
+        _adapter.removeEntries(entries);
+        updateEmptyState();
+    }
+
     public void clearEntries() {
         _adapter.clearEntries();
     }
@@ -560,12 +557,7 @@ public class EntryListView extends Fragment implements EntryAdapter.Listener {
         @Nullable
         @Override
         public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull VaultEntry entry) {
-            return Glide.with(EntryListView.this)
-                        .asDrawable()
-                        .load(entry)
-                        .set(IconLoader.ICON_TYPE, entry.getIconType())
-                        .diskCacheStrategy(DiskCacheStrategy.NONE)
-                        .skipMemoryCache(false);
+            return GlideHelper.loadEntryIcon(Glide.with(EntryListView.this), entry.getIcon(), entry.getIconType());
         }
     }
 }
@@ -0,0 +1,254 @@
+package com.beemdevelopment.aegis.ui.views;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.beemdevelopment.aegis.vault.VaultEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Searches the entries of EntryAdapter by their issuer and name. The normalized search key of
+ * every entry is computed once, when it's added. Searches run on a background thread and the
+ * result is published on the main thread as a whole. If a query extends the previous one, only
+ * the entries that matched the previous query are searched again.
+ *
+ * The entries that are searched (the candidates) are provided by the listener. They're only
+ * requested again after a call to invalidate, so the listener must call that whenever the
+ * candidates change (e.g. because an entry was added, or because the sort order changed).
+ * Everything except for the search itself happens on the main thread.
+ */
+class EntrySearchIndex {
+    // separates the issuer and the name in a search key, it can't be part of a (normalized) query
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final Listener _listener;
+    private final Map<VaultEntry, String> _keys = new IdentityHashMap<>();
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+    private final Handler _handler = new Handler(Looper.getMainLooper());
+
+    private Snapshot _snapshot;
+    private Result _result;
+    // incremented for every search, so that the results of superseded searches are dropped
+    private int _seq;
+
+    EntrySearchIndex(Listener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Normalizes the given text for searching: accents are removed and the text is converted
+     * to lower case, according to the current locale.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK && c != KEY_SEPARATOR) {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString().toLowerCase(Locale.getDefault());
+    }
+
+    void add(VaultEntry entry) {
+        _keys.put(entry, normalize(entry.getIssuer()) + KEY_SEPARATOR + normalize(entry.getName()));
+        invalidate();
+    }
+
+    void remove(VaultEntry entry) {
+        _keys.remove(entry);
+        invalidate();
+    }
+
+    void clear() {
+        _keys.clear();
+        invalidate();
+    }
+
+    /**
+     * Drops the current set of candidates, so that they're requested from the listener again
+     * for the next search.
+     */
+    void invalidate() {
+        _snapshot = null;
+        _result = null;
+    }
+
+    void destroy() {
+        _seq++;
+        _executor.shutdownNow();
+    }
+
+    /**
+     * Reports whether the given entry matches the given normalized query (see normalize).
+     */
+    boolean matches(VaultEntry entry, @Nullable String query) {
+        if (query == null) {
+            return true;
+        }
+
+        String key = _keys.get(entry);
+        return key != null && key.contains(query);
+    }
+
+    /**
+     * Searches the candidates for the given normalized query on the calling thread, and
+     * returns the entries that match, in the order of the candidates. This supersedes any
+     * search that's still running in the background.
+     */
+    List<VaultEntry> search(@Nullable String query) {
+        _seq++;
+        Search search = new Search(getSnapshot(), query, _result);
+        Result result = search.run();
+        _result = result;
+        return result.getEntries();
+    }
+
+    /**
+     * Searches the candidates for the given normalized query on a background thread. The
+     * entries that match are passed to the listener, unless another search is started before
+     * this one finishes.
+     */
+    void searchAsync(@Nullable String query) {
+        if (_executor.isShutdown()) {
+            return;
+        }
+
+        int seq = ++_seq;
+        Search search = new Search(getSnapshot(), query, _result);
+        _executor.execute(() -> {
+            Result result = search.run();
+            _handler.post(() -> publish(seq, result));
+        });
+    }
+
+    private void publish(int seq, Result result) {
+        if (seq != _seq) {
+            return;
+        }
+
+        // the candidates changed while searching, so the result may be incomplete
+        if (result._snapshot != _snapshot) {
+            searchAsync(result._query);
+            return;
+        }
+
+        _result = result;
+        _listener.onSearchResult(result.getEntries());
+    }
+
+    private Snapshot getSnapshot() {
+        if (_snapshot == null) {
+            List<VaultEntry> entries = new ArrayList<>(_listener.getSearchCandidates());
+            String[] keys = new String[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                keys[i] = _keys.get(entries.get(i));
+            }
+            _snapshot = new Snapshot(entries, keys);
+        }
+
+        return _snapshot;
+    }
+
+    /**
+     * An immutable copy of the candidates and their search keys.
+     */
+    private static class Snapshot {
+        private final List<VaultEntry> _entries;
+        private final String[] _keys;
+
+        private Snapshot(List<VaultEntry> entries, String[] keys) {
+            _entries = Collections.unmodifiableList(entries);
+            _keys = keys;
+        }
+    }
+
+    private static class Result {
+        private final Snapshot _snapshot;
+        private final String _query;
+        // the indices of the candidates that match the query, or null if all of them do
+        private final int[] _matches;
+
+        private Result(Snapshot snapshot, String query, int[] matches) {
+            _snapshot = snapshot;
+            _query = query;
+            _matches = matches;
+        }
+
+        private List<VaultEntry> getEntries() {
+            if (_matches == null) {
+                return new ArrayList<>(_snapshot._entries);
+            }
+
+            List<VaultEntry> entries = new ArrayList<>(_matches.length);
+            for (int i : _matches) {
+                entries.add(_snapshot._entries.get(i));
+            }
+            return entries;
+        }
+    }
+
+    private static class Search {
+        private final Snapshot _snapshot;
+        private final String _query;
+        private final Result _previous;
+
+        private Search(Snapshot snapshot, @Nullable String query, @Nullable Result previous) {
+            _snapshot = snapshot;
+            _query = query;
+            _previous = previous;
+        }
+
+        private Result run() {
+            if (_query == null) {
+                return new Result(_snapshot, null, null);
+            }
+
+            String[] keys = _snapshot._keys;
+            int[] matches = new int[keys.length];
+            int count = 0;
+
+            // if the query extends the previous one, only the previous matches can still match
+            if (_previous != null && _previous._snapshot == _snapshot && _previous._query != null
+                    && _previous._matches != null && _query.startsWith(_previous._query)) {
+                for (int i : _previous._matches) {
+                    if (keys[i] != null && keys[i].contains(_query)) {
+                        matches[count++] = i;
+                    }
+                }
+            } else {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null && keys[i].contains(_query)) {
+                        matches[count++] = i;
+                    }
+                }
+            }
+
+            int[] result = new int[count];
+            System.arraycopy(matches, 0, result, 0, count);
+            return new Result(_snapshot, _query, result);
+        }
+    }
+
+    interface Listener {
+        /**
+         * Returns the entries that are eligible to be shown, in the order they should be shown in.
+         */
+        List<VaultEntry> getSearchCandidates();
+
+        void onSearchResult(List<VaultEntry> entries);
+    }
+}
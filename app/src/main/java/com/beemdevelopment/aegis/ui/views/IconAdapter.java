@@ -12,6 +12,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.beemdevelopment.aegis.R;
 import com.beemdevelopment.aegis.icons.IconPack;
 import com.beemdevelopment.aegis.icons.IconType;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -28,6 +29,7 @@ public class IconAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private List<IconPack.Icon> _icons;
     private final List<CategoryHeader> _categories;
     private String _query;
+    private ViewPreloadSizeProvider<IconPack.Icon> _preloadSizeProvider;
 
     public IconAdapter(@NonNull Context context, String issuer, @NonNull Listener listener) {
         _context = context;
@@ -37,6 +39,14 @@ public class IconAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         _categories = new ArrayList<>();
     }
 
+    /**
+     * Sets the size provider of the icon preloader, so that icons are preloaded at the size of
+     * the icon views of this adapter.
+     */
+    public void setPreloadSizeProvider(ViewPreloadSizeProvider<IconPack.Icon> preloadSizeProvider) {
+        _preloadSizeProvider = preloadSizeProvider;
+    }
+
     /**
      * Loads all icons from the given icon pack into this adapter. Any icons added before this call will be overwritten.
      */
@@ -161,7 +171,15 @@ public class IconAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(viewType, parent, false);
-        return viewType == R.layout.card_icon ? new IconHolder(view) : new IconCategoryHolder(view);
+        if (viewType != R.layout.card_icon) {
+            return new IconCategoryHolder(view);
+        }
+
+        IconHolder holder = new IconHolder(view);
+        if (_preloadSizeProvider != null) {
+            _preloadSizeProvider.setView(holder.getIconView());
+        }
+        return holder;
     }
 
     @Override
@@ -12,9 +12,8 @@ import com.beemdevelopment.aegis.helpers.IconViewHelper;
 import com.beemdevelopment.aegis.helpers.ThemeHelper;
 import com.beemdevelopment.aegis.icons.IconPack;
 import com.beemdevelopment.aegis.icons.IconType;
-import com.beemdevelopment.aegis.ui.glide.IconLoader;
+import com.beemdevelopment.aegis.ui.glide.GlideHelper;
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
 import java.io.File;
 
@@ -39,6 +38,10 @@ public class IconHolder extends RecyclerView.ViewHolder {
         _textView.setText(icon.getName());
     }
 
+    public ImageView getIconView() {
+        return _imageView;
+    }
+
     public void loadIcon(Context context) {
         if (_isCustom) {
             int tint = ThemeHelper.getThemeColor(R.attr.iconColorPrimary, context.getTheme());
@@ -47,12 +50,7 @@ public class IconHolder extends RecyclerView.ViewHolder {
         } else {
             _imageView.setImageTintList(null);
             IconViewHelper.setLayerType(_imageView, _iconType);
-            Glide.with(context)
-                    .asDrawable()
-                    .load(_iconFile)
-                    .set(IconLoader.ICON_TYPE, _iconType)
-                    .diskCacheStrategy(DiskCacheStrategy.NONE)
-                    .skipMemoryCache(false)
+            GlideHelper.loadPickerIcon(Glide.with(context), _iconFile, _iconType)
                     .into(_imageView);
         }
     }
@@ -1,21 +1,22 @@
 package com.beemdevelopment.aegis.ui.views;
 
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.os.Build;
-import android.os.Handler;
 import android.provider.Settings;
 import android.util.AttributeSet;
-import android.view.animation.LinearInterpolator;
 import android.widget.ProgressBar;
 
 import androidx.annotation.RequiresApi;
 
+import com.beemdevelopment.aegis.helpers.PeriodTicker;
 import com.beemdevelopment.aegis.otp.TotpInfo;
 
-public class TotpProgressBar extends ProgressBar {
+/**
+ * A progress bar that shows the time left until the codes of a period rotate. It's updated on
+ * every frame by PeriodTicker while it's started.
+ */
+public class TotpProgressBar extends ProgressBar implements PeriodTicker.FrameListener {
     private int _period = TotpInfo.DEFAULT_PERIOD;
-    private Handler _handler;
     private float _animDurationScale;
 
     public TotpProgressBar(Context context) {
@@ -40,44 +41,25 @@ public class TotpProgressBar extends ProgressBar {
     }
 
     public void start() {
-        stop();
-        _handler = new Handler();
         _animDurationScale = Settings.Global.getFloat(getContext().getContentResolver(), Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
-        refresh();
+        onFrame(System.currentTimeMillis());
+        PeriodTicker.getInstance().subscribeFrames(this);
     }
 
     public void stop() {
-        if (_handler != null) {
-            _handler.removeCallbacksAndMessages(null);
-            _handler = null;
-        }
-    }
-
-    public void restart() {
-        stop();
-        start();
+        PeriodTicker.getInstance().unsubscribeFrames(this);
     }
 
-    private void refresh() {
-        // calculate the current progress the bar should start at
-        int maxProgress = getMax();
-        long millisTillRotation = TotpInfo.getMillisTillNextRotation(_period);
-        int currentProgress = (int) (maxProgress * ((float) millisTillRotation / (_period * 1000)));
+    @Override
+    public void onFrame(long millis) {
+        long periodMillis = _period * 1000L;
+        long millisTillRotation = TotpInfo.getMillisTillNextRotation(_period, millis);
 
-        // start progress animation, compensating for any changes to the animator duration scale settings
-        float animPart = (float) maxProgress / _period;
-        int animEnd = (int) (Math.floor(currentProgress / animPart) * animPart);
-        int animPartDuration = _animDurationScale > 0 ? (int) (1000 / _animDurationScale) : 0;
-        float animDurationFraction = (float) (currentProgress - animEnd) / animPart;
-        int realAnimDuration = (int) (1000 * animDurationFraction);
-        int animDuration =  (int) (animPartDuration * animDurationFraction);
-
-        ObjectAnimator animation = ObjectAnimator.ofInt(this, "progress", currentProgress, animEnd);
-        animation.setDuration(animDuration);
-        animation.setInterpolator(new LinearInterpolator());
-        animation.start();
+        // if animations are disabled, only move the bar once every second
+        if (_animDurationScale <= 0) {
+            millisTillRotation = (millisTillRotation + 999) / 1000 * 1000;
+        }
 
-        // the animation only lasts for (less than) one second, so restart it after that
-        _handler.postDelayed(this::refresh, realAnimDuration);
+        setProgress((int) (getMax() * ((float) millisTillRotation / periodMillis)));
     }
 }
@@ -6,20 +6,24 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.UUID;
 
 /**
  * A map data structure abstraction for storing values with a UUID as the key. Keys
- * must be specified by the value itself, instead of separately. It uses a
- * LinkedHashMap internally (a hash map with a separate linked list that maintains
- * the order).
+ * must be specified by the value itself, instead of separately. It uses a HashMap
+ * internally for lookups, and a separate list that maintains the order. The position
+ * of every value in that list is indexed by UUID as well, so that values can be
+ * swapped and moved without going over the entire list.
  * @param <T> The type of values in this map
  */
 public class UUIDMap <T extends UUIDMap.Value> implements Iterable<T>, Serializable {
-    private LinkedHashMap<UUID, T> _map = new LinkedHashMap<>();
+    private HashMap<UUID, T> _map = new HashMap<>();
+    private ArrayList<T> _values = new ArrayList<>();
+    // the position of every value in _values, or null if it needs to be rebuilt
+    private transient HashMap<UUID, Integer> _indices;
 
     /**
      * Adds a value to the internal map.
@@ -31,6 +35,10 @@ public class UUIDMap <T extends UUIDMap.Value> implements Iterable<T>, Serializa
             throw new AssertionError(String.format("Existing value found with UUID: %s", uuid));
         }
         _map.put(uuid, value);
+        _values.add(value);
+        if (_indices != null) {
+            _indices.put(uuid, _values.size() - 1);
+        }
     }
 
     /**
@@ -40,15 +48,62 @@ public class UUIDMap <T extends UUIDMap.Value> implements Iterable<T>, Serializa
      */
     public T remove(T value) {
         T oldValue = getByUUID(value.getUUID());
+        int index = indexOf(oldValue.getUUID());
         _map.remove(oldValue.getUUID());
+        _values.remove(index);
+
+        // the values after the removed one have shifted
+        if (index == _values.size()) {
+            _indices.remove(oldValue.getUUID());
+        } else {
+            _indices = null;
+        }
         return oldValue;
     }
 
+    /**
+     * Removes the given values from the internal map. Unlike calling remove for every value,
+     * this only goes over the list once, no matter how many values are removed.
+     * @throws AssertionError if no map value exists with the UUID of one of the given values.
+     * @return The old values that are now no longer present in the internal map, in the order
+     * they were given in.
+     */
+    public List<T> removeAll(Collection<T> values) {
+        for (T value : values) {
+            if (!has(value)) {
+                throw new AssertionError(String.format("No value found with UUID: %s", value.getUUID()));
+            }
+        }
+
+        List<T> oldValues = new ArrayList<>(values.size());
+        for (T value : values) {
+            T oldValue = _map.remove(value.getUUID());
+            // the same value may have been given twice
+            if (oldValue != null) {
+                oldValues.add(oldValue);
+            }
+        }
+
+        // move the remaining values forward, then cut off the tail
+        int size = 0;
+        for (T value : _values) {
+            if (_map.containsKey(value.getUUID())) {
+                _values.set(size++, value);
+            }
+        }
+        _values.subList(size, _values.size()).clear();
+
+        _indices = null;
+        return oldValues;
+    }
+
     /**
      * Clears the internal map.
      */
     public void wipe() {
         _map.clear();
+        _values.clear();
+        _indices = null;
     }
 
     /**
@@ -60,56 +115,89 @@ public class UUIDMap <T extends UUIDMap.Value> implements Iterable<T>, Serializa
     public T replace(T newValue) {
         T oldValue = getByUUID(newValue.getUUID());
         _map.put(oldValue.getUUID(), newValue);
+        _values.set(indexOf(oldValue.getUUID()), newValue);
         return oldValue;
     }
 
     /**
-     * Swaps the position of value1 and value2 in the internal map. This operation is
-     * quite expensive because it has to reallocate the entire underlying LinkedHashMap.
+     * Swaps the position of value1 and value2 in the internal map.
      * @throws AssertionError if no map value exists with the UUID of the given entries.
      */
     public void swap(T value1, T value2) {
-        boolean found1 = false;
-        boolean found2 = false;
-        List<T> values = new ArrayList<>();
-
-        for (T value : _map.values()) {
-            if (value.getUUID().equals(value1.getUUID())) {
-                values.add(value2);
-                found1 = true;
-            } else if (value.getUUID().equals(value2.getUUID())) {
-                values.add(value1);
-                found2 = true;
-            } else {
-                values.add(value);
-            }
-        }
-
-        if (!found1) {
+        if (!has(value1)) {
             throw new AssertionError(String.format("No value found for value1 with UUID: %s", value1.getUUID()));
         }
-        if (!found2) {
+        if (!has(value2)) {
             throw new AssertionError(String.format("No value found for value2 with UUID: %s", value2.getUUID()));
         }
 
-        _map.clear();
-        for (T value : values) {
-            _map.put(value.getUUID(), value);
+        int index1 = indexOf(value1.getUUID());
+        int index2 = indexOf(value2.getUUID());
+        T stored1 = _values.get(index1);
+        _values.set(index1, _values.get(index2));
+        _values.set(index2, stored1);
+        _indices.put(value1.getUUID(), index2);
+        _indices.put(value2.getUUID(), index1);
+    }
+
+    /**
+     * Moves the given value to the given position in the internal map. The values in
+     * between shift by one position to make room for it. This only touches the values
+     * between the old and the new position of the given value.
+     * @throws AssertionError if no map value exists with the UUID of the given value.
+     * @throws IndexOutOfBoundsException if the given position is out of range.
+     */
+    public void move(T value, int index) {
+        T storedValue = getByUUID(value.getUUID());
+        if (index < 0 || index >= _values.size()) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, _values.size()));
+        }
+
+        int oldIndex = indexOf(storedValue.getUUID());
+        int step = index > oldIndex ? 1 : -1;
+        for (int i = oldIndex; i != index; i += step) {
+            T next = _values.get(i + step);
+            _values.set(i, next);
+            _indices.put(next.getUUID(), i);
+        }
+        _values.set(index, storedValue);
+        _indices.put(storedValue.getUUID(), index);
+    }
+
+    /**
+     * Returns the position of the value with the given UUID. The caller must ensure
+     * that such a value exists.
+     */
+    private int indexOf(UUID uuid) {
+        if (_indices == null) {
+            _indices = new HashMap<>(_values.size());
+            for (int i = 0; i < _values.size(); i++) {
+                _indices.put(_values.get(i).getUUID(), i);
+            }
         }
+
+        return _indices.get(uuid);
     }
 
     /**
      * Reports whether the internal map contains a value with the UUID of the given value.
      */
     public boolean has(T value) {
-        return _map.containsKey(value.getUUID());
+        return has(value.getUUID());
+    }
+
+    /**
+     * Reports whether the internal map contains a value with the given UUID.
+     */
+    public boolean has(UUID uuid) {
+        return _map.containsKey(uuid);
     }
 
     /**
      * Returns a read-only view of the values in the internal map.
      */
     public Collection<T> getValues() {
-        return Collections.unmodifiableCollection(_map.values());
+        return Collections.unmodifiableList(_values);
     }
 
     /**
@@ -127,7 +215,7 @@ public class UUIDMap <T extends UUIDMap.Value> implements Iterable<T>, Serializa
     @NonNull
     @Override
     public Iterator<T> iterator() {
-        return _map.values().iterator();
+        return getValues().iterator();
     }
 
     public static abstract class Value implements Serializable {
@@ -0,0 +1,137 @@
+package com.beemdevelopment.aegis.vault;
+
+import com.beemdevelopment.aegis.crypto.otp.OtpFormatter;
+import com.beemdevelopment.aegis.otp.OtpInfo;
+import com.beemdevelopment.aegis.otp.TotpInfo;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the current OTP of every entry in the vault, so that the code list, the clipboard
+ * and anything else that needs the code of an entry don't each compute it separately. Every
+ * code is computed at most once per time step (or HOTP counter).
+ *
+ * A cached code is only used if it was computed for the current step, with the OtpInfo that
+ * the entry currently has. Editing an entry replaces its OtpInfo, so that takes care of
+ * invalidation. The cache belongs to a VaultRepository and is closed when the vault is locked.
+ *
+ * The codes of the next time step can be computed ahead of time with prefetch (see
+ * OtpCodePrefetcher), so that they don't have to be computed on the main thread at the
+ * moment the codes rotate.
+ */
+public class OtpCodeCache {
+    private final Map<UUID, Code> _codes = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private boolean _closed;
+
+    /**
+     * Returns the untruncated code of the given entry at the given time (see OtpInfo.generateCode).
+     */
+    public long getCode(VaultEntry entry, long millis) {
+        OtpInfo info = entry.getInfo();
+        long step = info.getStep(millis);
+
+        Code code = _codes.get(entry.getUUID());
+        if (code == null || !code.covers(info, step)) {
+            // if two threads race here, they'll both compute the same code
+            code = new Code(info, step, new long[]{info.generateCode(step)});
+            _codes.put(entry.getUUID(), code);
+        }
+
+        return code.get(step);
+    }
+
+    public String getOtp(VaultEntry entry) {
+        long code = getCode(entry, System.currentTimeMillis());
+        return entry.getInfo().renderCode(code);
+    }
+
+    /**
+     * Renders the current code of the given entry into the given formatter. See OtpInfo.formatCode.
+     */
+    public boolean formatOtp(VaultEntry entry, OtpFormatter formatter, int groupSize) {
+        long code = getCode(entry, System.currentTimeMillis());
+        return entry.getInfo().formatCode(formatter, code, groupSize);
+    }
+
+    /**
+     * Computes the codes of the next time step of the given entries that rotate within the
+     * given amount of milliseconds from the given time. Entries that aren't time-based are
+     * skipped. Returns the amount of milliseconds after which this should be called again,
+     * or -1 if there are no time-based entries.
+     */
+    public synchronized long prefetch(Collection<VaultEntry> entries, long millis, long lookahead) {
+        if (_closed) {
+            return -1;
+        }
+
+        long delay = -1;
+        for (VaultEntry entry : entries) {
+            if (!(entry.getInfo() instanceof TotpInfo)) {
+                continue;
+            }
+
+            TotpInfo info = (TotpInfo) entry.getInfo();
+            long till = TotpInfo.getMillisTillNextRotation(info.getPeriod(), millis);
+            long entryDelay;
+            if (till <= lookahead) {
+                long step = info.getStep(millis);
+                Code code = _codes.get(entry.getUUID());
+                if (code == null || !code.covers(info, step + 1)) {
+                    // the current step is included, as it's still needed until the rotation
+                    _codes.put(entry.getUUID(), new Code(info, step, info.generateCodes(step, 2)));
+                }
+                entryDelay = till + info.getPeriod() * 1000L - lookahead;
+            } else {
+                entryDelay = till - lookahead;
+            }
+
+            if (delay == -1 || entryDelay < delay) {
+                delay = entryDelay;
+            }
+        }
+
+        return delay;
+    }
+
+    public void remove(UUID uuid) {
+        _codes.remove(uuid);
+    }
+
+    public void clear() {
+        _codes.clear();
+    }
+
+    /**
+     * Clears the cache and stops prefetch from computing any codes from now on. Once this
+     * returns, no prefetch is still running.
+     */
+    public synchronized void close() {
+        _closed = true;
+        clear();
+    }
+
+    private static class Code {
+        private final OtpInfo _info;
+        private final long _step;
+        private final long[] _values;
+
+        private Code(OtpInfo info, long step, long[] values) {
+            _info = info;
+            _step = step;
+            _values = values;
+        }
+
+        private boolean covers(OtpInfo info, long step) {
+            return _info == info && step >= _step && step - _step < _values.length;
+        }
+
+        private long get(long step) {
+            return _values[(int) (step - _step)];
+        }
+    }
+}
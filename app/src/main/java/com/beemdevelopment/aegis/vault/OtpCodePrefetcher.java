@@ -0,0 +1,78 @@
+package com.beemdevelopment.aegis.vault;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the codes of the next time step of a set of entries (e.g. the ones that are on
+ * screen) on a background thread, a few seconds before they rotate. The codes end up in the
+ * given OtpCodeCache, so that updating the codes at the moment of rotation doesn't involve
+ * any HMAC computations on the main thread. Entries with different periods rotate at
+ * different moments, so the prefetcher wakes up for whichever entry rotates first.
+ */
+public class OtpCodePrefetcher {
+    // how long before a rotation the codes of the next time step are computed
+    static final long LOOKAHEAD_MS = 5000;
+    // a lower bound on the delay between runs, for entries with very short periods
+    private static final long MIN_DELAY_MS = 1000;
+
+    private final OtpCodeCache _cache;
+    private final ScheduledExecutorService _executor;
+
+    private volatile List<VaultEntry> _entries = Collections.emptyList();
+    // guarded by this
+    private ScheduledFuture<?> _future;
+
+    public OtpCodePrefetcher(OtpCodeCache cache) {
+        _cache = cache;
+        _executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Sets the entries to prefetch the codes of. The given collection is copied.
+     */
+    public synchronized void setEntries(Collection<VaultEntry> entries) {
+        if (_executor.isShutdown()) {
+            return;
+        }
+
+        _entries = new ArrayList<>(entries);
+        schedule(0);
+    }
+
+    public synchronized void stop() {
+        _entries = Collections.emptyList();
+        _executor.shutdownNow();
+    }
+
+    private synchronized void schedule(long delay) {
+        if (_future != null) {
+            _future.cancel(false);
+        }
+        _future = _executor.schedule(this::prefetch, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void prefetch() {
+        List<VaultEntry> entries = _entries;
+        long delay = _cache.prefetch(entries, System.currentTimeMillis(), LOOKAHEAD_MS);
+
+        synchronized (this) {
+            if (_executor.isShutdown()) {
+                return;
+            }
+
+            // the run that setEntries scheduled may have been skipped while this one was running
+            if (entries != _entries) {
+                schedule(0);
+            } else if (delay != -1) {
+                schedule(Math.max(delay, MIN_DELAY_MS));
+            }
+        }
+    }
+}
@@ -1,13 +1,33 @@
 package com.beemdevelopment.aegis.vault;
 
+import androidx.annotation.Nullable;
+
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.CryptParameters;
+import com.beemdevelopment.aegis.crypto.MasterKey;
+import com.beemdevelopment.aegis.encoding.Hex;
 import com.beemdevelopment.aegis.util.UUIDMap;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 public class Vault {
     private static final int VERSION = 2;
+
+    // vaults with at least this many entries are parsed on multiple threads, see parseEntries
+    static final int PARALLEL_THRESHOLD = 256;
+
     private UUIDMap<VaultEntry> _entries = new UUIDMap<>();
 
     public JSONObject toJson() {
@@ -26,7 +46,70 @@ public class Vault {
         }
     }
 
+    /**
+     * Writes the JSON representation of this vault to the given Writer. Entries are
+     * serialized one at a time, so a full copy of the document is never held in memory.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writeJson(writer, null);
+    }
+
+    /**
+     * Writes the index of this vault to the given Writer: the JSON representation of the vault
+     * without the sealed payloads of the entries, which are referenced from the given map instead.
+     */
+    void writeIndexJson(Writer writer, Map<UUID, VaultEntryPayload> payloads) throws IOException {
+        writeJson(writer, payloads);
+    }
+
+    /**
+     * Writes the binary encoding of the index of this vault to the given stream. Like
+     * writeJson, this serializes the entries one at a time. The given payloads and icons
+     * are referenced from the index.
+     */
+    void writeIndexProto(CodedOutputStream stream, Map<UUID, VaultEntryPayload> payloads, Map<ByteString, VaultEntryIcon.Sealed> icons) throws IOException {
+        stream.writeInt32(VaultProtos.Vault.VERSION_FIELD_NUMBER, VERSION);
+        for (Map.Entry<ByteString, VaultEntryIcon.Sealed> icon : icons.entrySet()) {
+            VaultProtos.Icon iconProto = VaultProtos.Icon.newBuilder()
+                    .setHash(icon.getKey())
+                    .setParams(VaultEntryPayload.toProto(icon.getValue().getParams()))
+                    .build();
+            stream.writeMessage(VaultProtos.Vault.ICONS_FIELD_NUMBER, iconProto);
+        }
+        for (VaultEntry e : _entries) {
+            stream.writeMessage(VaultProtos.Vault.ENTRIES_FIELD_NUMBER, e.toIndexProto(payloads.get(e.getUUID())));
+        }
+    }
+
+    private void writeJson(Writer writer, @Nullable Map<UUID, VaultEntryPayload> payloads) throws IOException {
+        writer.write("{\"version\":" + VERSION + ",\"entries\":[");
+
+        boolean first = true;
+        for (VaultEntry e : _entries) {
+            if (!first) {
+                writer.write(',');
+            }
+            JSONObject obj = payloads != null ? e.toIndexJson(payloads.get(e.getUUID())) : e.toJson();
+            writer.write(obj.toString());
+            first = false;
+        }
+
+        writer.write("]}");
+    }
+
     public static Vault fromJson(JSONObject obj) throws VaultException {
+        return fromJson(obj, null);
+    }
+
+    /**
+     * Parses a vault from the given JSON. The given key is used to open the sealed payloads of
+     * the entries on demand, if the JSON is the index of a version 2 vault file.
+     */
+    public static Vault fromJson(JSONObject obj, @Nullable MasterKey key) throws VaultException {
+        return fromJson(obj, key, PARALLEL_THRESHOLD);
+    }
+
+    static Vault fromJson(JSONObject obj, @Nullable MasterKey key, int parallelThreshold) throws VaultException {
         Vault vault = new Vault();
         UUIDMap<VaultEntry> entries = vault.getEntries();
 
@@ -37,8 +120,11 @@ public class Vault {
             }
 
             JSONArray array = obj.getJSONArray("entries");
-            for (int i = 0; i < array.length(); i++) {
-                VaultEntry entry = VaultEntry.fromJson(array.getJSONObject(i));
+            VaultEntry[] parsed = parseEntries(array.length(), parallelThreshold, i -> VaultEntry.fromJson(array.getJSONObject(i), key));
+
+            Map<String, VaultEntryIcon> icons = new HashMap<>();
+            for (VaultEntry entry : parsed) {
+                entry.internIcon(icons);
                 entries.add(entry);
             }
         } catch (VaultEntryException | JSONException e) {
@@ -48,6 +134,128 @@ public class Vault {
         return vault;
     }
 
+    /**
+     * Parses a vault from the binary encoding of its index. The ciphertext of the sealed
+     * icons and payloads of the entries is looked up in the given icons and payloads objects.
+     */
+    static Vault fromIndexProto(VaultProtos.Vault proto, JSONObject icons, JSONObject payloads, MasterKey key) throws VaultException {
+        return fromIndexProto(proto, icons, payloads, key, PARALLEL_THRESHOLD);
+    }
+
+    static Vault fromIndexProto(VaultProtos.Vault proto, JSONObject icons, JSONObject payloads, MasterKey key, int parallelThreshold) throws VaultException {
+        if (proto.getVersion() > VERSION) {
+            throw new VaultException("Unsupported version");
+        }
+
+        Vault vault = new Vault();
+        try {
+            // entries with the same icon share a single instance, so that it's only decrypted once
+            Map<ByteString, VaultEntryIcon> iconTable = new HashMap<>();
+            for (VaultProtos.Icon iconProto : proto.getIconsList()) {
+                byte[] hash = iconProto.getHash().toByteArray();
+                String data = icons.getString(Hex.encode(hash));
+                CryptParameters params = VaultEntryPayload.fromProto(iconProto.getParams());
+                iconTable.put(iconProto.getHash(), VaultEntryIcon.fromSealed(hash, key, params, data));
+            }
+
+            VaultEntry[] parsed = parseEntries(proto.getEntriesCount(), parallelThreshold, i -> VaultEntry.fromIndexProto(proto.getEntries(i), payloads, iconTable, key));
+            for (VaultEntry entry : parsed) {
+                vault.getEntries().add(entry);
+            }
+        } catch (VaultEntryException | JSONException e) {
+            throw new VaultException(e);
+        }
+
+        return vault;
+    }
+
+    /**
+     * Parses the given number of entries with the given parser. If there are at least as many
+     * entries as the given threshold, they're split into batches that are parsed in parallel.
+     * The entries are returned in order either way. If parsing fails, the exception of the
+     * first entry that failed is thrown, just like when parsing the entries one by one.
+     */
+    private static VaultEntry[] parseEntries(int count, int parallelThreshold, EntryParser parser) throws VaultEntryException, JSONException {
+        VaultEntry[] entries = new VaultEntry[count];
+        if (count < parallelThreshold) {
+            for (int i = 0; i < count; i++) {
+                entries[i] = parser.parse(i);
+            }
+            return entries;
+        }
+
+        Exception e = ParseTask.POOL.invoke(new ParseTask(parser, entries, 0, count));
+        if (e instanceof VaultEntryException) {
+            throw (VaultEntryException) e;
+        } else if (e instanceof JSONException) {
+            throw (JSONException) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+        return entries;
+    }
+
+    private interface EntryParser {
+        VaultEntry parse(int i) throws VaultEntryException, JSONException;
+    }
+
+    /**
+     * Parses a range of entries by splitting it in halves until the batches are small enough.
+     * Returns the exception of the first entry in the range that failed to parse, if any.
+     */
+    private static class ParseTask extends RecursiveTask<Exception> {
+        private static final int BATCH_SIZE = 64;
+
+        // ForkJoinPool.commonPool() is not available on all supported API levels
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+
+        private final EntryParser _parser;
+        private final VaultEntry[] _entries;
+        private final int _start;
+        private final int _end;
+
+        private ParseTask(EntryParser parser, VaultEntry[] entries, int start, int end) {
+            _parser = parser;
+            _entries = entries;
+            _start = start;
+            _end = end;
+        }
+
+        @Override
+        protected Exception compute() {
+            if (_end - _start <= BATCH_SIZE) {
+                for (int i = _start; i < _end; i++) {
+                    try {
+                        _entries[i] = _parser.parse(i);
+                    } catch (VaultEntryException | JSONException | RuntimeException e) {
+                        return e;
+                    }
+                }
+                return null;
+            }
+
+            int mid = (_start + _end) >>> 1;
+            ParseTask right = new ParseTask(_parser, _entries, mid, _end);
+            right.fork();
+            Exception e = new ParseTask(_parser, _entries, _start, mid).compute();
+
+            // the left half always precedes the right half, so its failure takes precedence
+            Exception rightE = right.join();
+            return e != null ? e : rightE;
+        }
+    }
+
+    /**
+     * Returns a copy of this vault that is unaffected by any later changes made to this vault.
+     */
+    public Vault copy() {
+        Vault vault = new Vault();
+        for (VaultEntry entry : _entries) {
+            vault.getEntries().add(entry.copy());
+        }
+        return vault;
+    }
+
     public UUIDMap<VaultEntry> getEntries() {
         return _entries;
     }
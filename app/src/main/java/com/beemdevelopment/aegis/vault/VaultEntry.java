@@ -1,7 +1,10 @@
 package com.beemdevelopment.aegis.vault;
 
-import com.beemdevelopment.aegis.encoding.Base64;
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.MasterKey;
+import com.beemdevelopment.aegis.crypto.MasterKeyException;
 import com.beemdevelopment.aegis.encoding.EncodingException;
+import com.beemdevelopment.aegis.encoding.Hex;
 import com.beemdevelopment.aegis.icons.IconType;
 import com.beemdevelopment.aegis.otp.GoogleAuthInfo;
 import com.beemdevelopment.aegis.otp.OtpInfo;
@@ -9,26 +12,36 @@ import com.beemdevelopment.aegis.otp.OtpInfoException;
 import com.beemdevelopment.aegis.otp.TotpInfo;
 import com.beemdevelopment.aegis.util.JsonUtils;
 import com.beemdevelopment.aegis.util.UUIDMap;
+import com.google.protobuf.ByteString;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public class VaultEntry extends UUIDMap.Value {
     private String _name = "";
     private String _issuer = "";
     private String _group;
     private OtpInfo _info;
-    private byte[] _icon;
+    private VaultEntryIcon _icon;
     private IconType _iconType = IconType.INVALID;
     private int _usageCount;
     private String _note = "";
 
+    // the sealed note (and icon) of this entry, as read from a version 2 or 3 vault file
+    // as long as _payloadOpen is false, _note (and _icon, if it isn't in the icon table) have not been populated yet
+    private transient VaultEntryPayload _payload;
+    private transient boolean _payloadOpen;
+
     private VaultEntry(UUID uuid, OtpInfo info) {
         super(uuid);
         _info = info;
@@ -65,9 +78,9 @@ public class VaultEntry extends UUIDMap.Value {
             obj.put("name", _name);
             obj.put("issuer", _issuer);
             obj.put("group", _group);
-            obj.put("note", _note);
-            obj.put("icon", _icon == null ? JSONObject.NULL : Base64.encode(_icon));
-            obj.put("icon_mime", _icon == null ? null : _iconType.toMimeType());
+            obj.put("note", getNote());
+            obj.put("icon", hasIcon() ? getIcon().toBase64() : JSONObject.NULL);
+            obj.put("icon_mime", hasIcon() ? _iconType.toMimeType() : null);
             obj.put("info", _info.toJson());
         } catch (JSONException e) {
             throw new RuntimeException(e);
@@ -76,7 +89,198 @@ public class VaultEntry extends UUIDMap.Value {
         return obj;
     }
 
+    /**
+     * Returns the JSON representation of this entry as it appears in the index of a version 2
+     * vault file. The icon and note are left out, and a reference to the given payload (which
+     * holds them) is included instead, if there is one.
+     */
+    JSONObject toIndexJson(@Nullable VaultEntryPayload payload) {
+        JSONObject obj = new JSONObject();
+
+        try {
+            obj.put("type", _info.getTypeId());
+            obj.put("uuid", getUUID().toString());
+            obj.put("name", _name);
+            obj.put("issuer", _issuer);
+            obj.put("group", _group);
+            obj.put("icon_mime", hasIcon() ? _iconType.toMimeType() : null);
+            obj.put("info", _info.toJson());
+            if (payload != null) {
+                obj.put("payload", payload.getParams().toJson());
+            } else {
+                // there's no payload if the entry has neither an icon nor a note
+                obj.put("note", "");
+                obj.put("icon", JSONObject.NULL);
+            }
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+
+        return obj;
+    }
+
+    /**
+     * Returns the protobuf representation of this entry as it appears in the index of a
+     * version 3 vault file. Like toIndexJson, this leaves out the note. The icon is referenced
+     * by its hash, as it's stored in the icon table of the vault file.
+     */
+    VaultProtos.Entry toIndexProto(@Nullable VaultEntryPayload payload) {
+        ByteBuffer uuid = ByteBuffer.allocate(16);
+        uuid.putLong(getUUID().getMostSignificantBits());
+        uuid.putLong(getUUID().getLeastSignificantBits());
+
+        VaultProtos.Entry.Builder builder = VaultProtos.Entry.newBuilder()
+                .setUuid(ByteString.copyFrom(uuid.array()))
+                .setName(_name)
+                .setIssuer(_issuer)
+                .setInfo(_info.toProto());
+        if (_group != null) {
+            builder.setGroup(_group);
+        }
+        if (hasIcon()) {
+            builder.setIconMime(_iconType.toMimeType());
+            builder.setIconHash(ByteString.copyFrom(getIcon().getHash()));
+        }
+        if (payload != null) {
+            builder.setPayload(payload.toProto());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the sealed payload of this entry for the given key, or null if there's nothing
+     * to seal. An existing payload is reused if it was sealed with the same key and encoding,
+     * which avoids having to decrypt and encrypt it again. The icon is only included in the
+     * JSON encoding, because the binary encoding goes with the icon table of version 3 vault files.
+     */
+    @Nullable
+    VaultEntryPayload getPayload(MasterKey key, boolean binary) throws MasterKeyException {
+        if (_payload != null && _payload.isSealedWith(key, binary)) {
+            return _payload;
+        }
+
+        byte[] icon = !binary && hasIcon() ? getIcon().getBytes() : null;
+        if (icon == null && getNote().isEmpty()) {
+            return null;
+        }
+
+        _payload = VaultEntryPayload.seal(key, getNote(), icon, binary);
+        _payloadOpen = true;
+        return _payload;
+    }
+
+    /**
+     * Decrypts the payload of this entry if that hasn't happened yet. This can happen on any
+     * thread (e.g. when Glide loads the icon), hence the synchronization.
+     */
+    private synchronized void openPayload() {
+        if (_payload == null || _payloadOpen) {
+            return;
+        }
+
+        try {
+            VaultEntryPayload.Contents contents = _payload.open();
+            _note = contents.getNote();
+            if (contents.getIcon() != null) {
+                _icon = VaultEntryIcon.of(contents.getIcon());
+            }
+        } catch (VaultEntryException e) {
+            throw new IllegalStateException("Unable to open the payload of the entry", e);
+        }
+
+        _payloadOpen = true;
+    }
+
+    /**
+     * Replaces the icon of this entry with an identical one from the given map (or adds it to
+     * the map if there isn't one yet), so that entries with the same icon share it in memory.
+     * The map is keyed by the Base64 encoding of the icons, so that this doesn't require
+     * decoding icons that were read from JSON.
+     */
+    void internIcon(Map<String, VaultEntryIcon> icons) {
+        if (_icon == null) {
+            return;
+        }
+
+        String key = _icon.toBase64();
+        VaultEntryIcon icon = icons.get(key);
+        if (icon != null) {
+            _icon = icon;
+        } else {
+            icons.put(key, _icon);
+        }
+    }
+
+    /**
+     * Marks the payload of this entry as stale after its icon or note has changed.
+     */
+    private void invalidatePayload() {
+        openPayload();
+        _payload = null;
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        // the key must not end up in the serialized entry, so the payload is opened instead
+        openPayload();
+        stream.defaultWriteObject();
+    }
+
     public static VaultEntry fromJson(JSONObject obj) throws VaultEntryException {
+        return fromJson(obj, null);
+    }
+
+    /**
+     * Parses an entry from the index of a version 3 vault file. The ciphertext of the sealed
+     * payload of the entry (if it has one) is looked up in the given payloads object, and
+     * its icon is looked up in the given icon table.
+     */
+    static VaultEntry fromIndexProto(VaultProtos.Entry proto, JSONObject payloads, Map<ByteString, VaultEntryIcon> icons, MasterKey key) throws VaultEntryException {
+        try {
+            ByteBuffer uuidBytes = proto.getUuid().asReadOnlyByteBuffer();
+            if (uuidBytes.remaining() != 16) {
+                throw new VaultEntryException(String.format("Bad UUID length: %d", uuidBytes.remaining()));
+            }
+            UUID uuid = new UUID(uuidBytes.getLong(), uuidBytes.getLong());
+
+            VaultEntry entry = new VaultEntry(uuid, OtpInfo.fromProto(proto.getInfo()));
+            entry.setName(proto.getName());
+            entry.setIssuer(proto.getIssuer());
+            if (proto.getGroupOneofCase() == VaultProtos.Entry.GroupOneofCase.GROUP) {
+                entry.setGroup(proto.getGroup());
+            }
+
+            if (!proto.getIconMime().isEmpty()) {
+                entry._iconType = IconType.fromMimeType(proto.getIconMime());
+                if (entry._iconType == IconType.INVALID) {
+                    throw new VaultEntryException(String.format("Bad icon MIME type: %s", proto.getIconMime()));
+                }
+            }
+
+            if (!proto.getIconHash().isEmpty()) {
+                entry._icon = icons.get(proto.getIconHash());
+                if (entry._icon == null) {
+                    throw new VaultEntryException(String.format("Unknown icon: %s", Hex.encode(proto.getIconHash().toByteArray())));
+                }
+            }
+
+            if (proto.hasPayload()) {
+                String data = payloads.getString(uuid.toString());
+                entry._payload = VaultEntryPayload.fromProto(proto.getPayload(), data, key);
+            }
+
+            return entry;
+        } catch (OtpInfoException | JSONException e) {
+            throw new VaultEntryException(e);
+        }
+    }
+
+    /**
+     * Parses an entry from the given JSON. If the entry refers to a sealed payload (like
+     * the entries in the index of a version 2 vault file do), the given key is used to
+     * decrypt it once the icon or note is needed.
+     */
+    public static VaultEntry fromJson(JSONObject obj, @Nullable MasterKey key) throws VaultEntryException {
         try {
             // if there is no uuid, generate a new one
             UUID uuid;
@@ -91,6 +295,24 @@ public class VaultEntry extends UUIDMap.Value {
             entry.setName(obj.getString("name"));
             entry.setIssuer(obj.getString("issuer"));
             entry.setGroup(obj.optString("group", null));
+
+            if (obj.has("payload")) {
+                if (key == null) {
+                    throw new VaultEntryException("Entry has a sealed payload, but no key was given");
+                }
+
+                String mime = JsonUtils.optString(obj, "icon_mime");
+                if (mime != null) {
+                    entry._iconType = IconType.fromMimeType(mime);
+                    if (entry._iconType == IconType.INVALID) {
+                        throw new VaultEntryException(String.format("Bad icon MIME type: %s", mime));
+                    }
+                }
+
+                entry._payload = VaultEntryPayload.fromJson(obj.getJSONObject("payload"), key);
+                return entry;
+            }
+
             entry.setNote(obj.optString("note", ""));
 
             Object icon = obj.get("icon");
@@ -102,8 +324,9 @@ public class VaultEntry extends UUIDMap.Value {
                     throw new VaultEntryException(String.format("Bad icon MIME type: %s", mime));
                 }
 
-                byte[] iconBytes = Base64.decode((String) icon);
-                entry.setIcon(iconBytes, iconType);
+                // the icon is only decoded once it's needed
+                entry._icon = VaultEntryIcon.fromBase64((String) icon);
+                entry._iconType = iconType;
             }
 
             return entry;
@@ -112,6 +335,25 @@ public class VaultEntry extends UUIDMap.Value {
         }
     }
 
+    /**
+     * Returns a copy of this entry (with the same UUID) that is unaffected by any later
+     * changes made to this entry in place. The secret, icon and sealed payload are shared,
+     * as those are never modified in place.
+     */
+    public synchronized VaultEntry copy() {
+        VaultEntry entry = new VaultEntry(getUUID(), _info.clone());
+        entry._name = _name;
+        entry._issuer = _issuer;
+        entry._group = _group;
+        entry._icon = _icon;
+        entry._iconType = _iconType;
+        entry._usageCount = _usageCount;
+        entry._note = _note;
+        entry._payload = _payload;
+        entry._payloadOpen = _payloadOpen;
+        return entry;
+    }
+
     public String getName() {
         return _name;
     }
@@ -124,7 +366,8 @@ public class VaultEntry extends UUIDMap.Value {
         return _group;
     }
 
-    public byte[] getIcon() {
+    public VaultEntryIcon getIcon() {
+        openPayload();
         return _icon;
     }
 
@@ -140,7 +383,10 @@ public class VaultEntry extends UUIDMap.Value {
         return _usageCount;
     }
 
-    public String getNote() { return _note; }
+    public String getNote() {
+        openPayload();
+        return _note;
+    }
 
     public void setName(String name) {
         _name = name;
@@ -159,17 +405,26 @@ public class VaultEntry extends UUIDMap.Value {
     }
 
     public void setIcon(byte[] icon, IconType iconType) {
-        _icon = icon;
+        invalidatePayload();
+        _icon = icon != null ? VaultEntryIcon.of(icon) : null;
         _iconType = iconType;
     }
 
     public boolean hasIcon() {
-        return _icon != null;
+        if (_icon != null) {
+            return true;
+        }
+
+        // the icon type is part of the index, so there's no need to open the payload
+        return _payload != null && !_payloadOpen && _iconType != IconType.INVALID;
     }
 
     public void setUsageCount(int usageCount) { _usageCount = usageCount; }
 
-    public void setNote(String note) { _note = note; }
+    public void setNote(String note) {
+        invalidatePayload();
+        _note = note;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -191,7 +446,7 @@ public class VaultEntry extends UUIDMap.Value {
                 && getIssuer().equals(entry.getIssuer())
                 && Objects.equals(getGroup(), entry.getGroup())
                 && getInfo().equals(entry.getInfo())
-                && Arrays.equals(getIcon(), entry.getIcon())
+                && VaultEntryIcon.contentsEqual(getIcon(), entry.getIcon())
                 && getIconType().equals(entry.getIconType())
                 && getNote().equals(entry.getNote());
     }
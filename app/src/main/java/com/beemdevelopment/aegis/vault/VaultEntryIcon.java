@@ -0,0 +1,223 @@
+package com.beemdevelopment.aegis.vault;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.beemdevelopment.aegis.crypto.CryptParameters;
+import com.beemdevelopment.aegis.crypto.CryptResult;
+import com.beemdevelopment.aegis.crypto.MasterKey;
+import com.beemdevelopment.aegis.crypto.MasterKeyException;
+import com.beemdevelopment.aegis.encoding.Base64;
+import com.beemdevelopment.aegis.encoding.EncodingException;
+import com.beemdevelopment.aegis.encoding.Hex;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The contents of the icon of a vault entry, identified by their SHA-256 hash. Entries with
+ * the same icon can share a single instance of this class. This is also used as the model for
+ * loading icons with Glide, so that identical icons are only decoded once.
+ *
+ * In version 3 vault files, every distinct icon is sealed only once, in a table keyed by its
+ * hash. Icons read from a vault file (whether sealed or Base64-encoded) are only decrypted and
+ * decoded when their contents are needed. The result is kept in a cache of limited size, so
+ * that the contents of icons that aren't on screen don't stay resident.
+ *
+ * Icons are compared (in equals and hashCode) by a key that is determined when the icon is
+ * created, so that comparing them never requires decoding them. This is the hash of their
+ * contents, unless the icon was created from its Base64 encoding, in which case it's the
+ * hash of that encoding. To compare the actual contents of two icons, use contentsEqual.
+ */
+public class VaultEntryIcon implements Serializable {
+    private static final long CACHE_MAX_SIZE = 4 * 1024 * 1024;
+
+    // the keys are compared by identity, so that looking up an icon doesn't require its hash
+    private static final Cache<VaultEntryIcon, byte[]> _cache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumWeight(CACHE_MAX_SIZE)
+            .weigher((VaultEntryIcon icon, byte[] bytes) -> bytes.length)
+            .build();
+
+    // the hash of the contents of the icon, computed when it's first needed
+    private byte[] _hash;
+    // the key that icons are compared by
+    private final byte[] _key;
+
+    // exactly one of these is set, depending on where the icon came from
+    private final byte[] _bytes;
+    private final String _encoded;
+    private transient Sealed _sealed;
+
+    private VaultEntryIcon(byte[] hash, byte[] key, byte[] bytes, String encoded, Sealed sealed) {
+        _hash = hash;
+        _key = key;
+        _bytes = bytes;
+        _encoded = encoded;
+        _sealed = sealed;
+    }
+
+    public static VaultEntryIcon of(@NonNull byte[] bytes) {
+        byte[] hash = digest(bytes);
+        return new VaultEntryIcon(hash, hash, bytes, null, null);
+    }
+
+    /**
+     * Creates an icon from its Base64-encoded contents (as found in the JSON representation
+     * of an entry), which are only decoded when they are needed.
+     */
+    static VaultEntryIcon fromBase64(@NonNull String encoded) throws EncodingException {
+        if (!Base64.canDecode(encoded)) {
+            throw new EncodingException("Bad Base64 encoding of icon");
+        }
+
+        return new VaultEntryIcon(null, digest(encoded.getBytes(StandardCharsets.US_ASCII)), null, encoded, null);
+    }
+
+    static VaultEntryIcon fromSealed(byte[] hash, MasterKey key, CryptParameters params, String data) {
+        return new VaultEntryIcon(hash, hash, null, null, new Sealed(key, params, data));
+    }
+
+    /**
+     * Returns the contents of the icon, decoding or decrypting them first if needed. This can
+     * happen on any thread (e.g. when Glide loads the icon).
+     */
+    public byte[] getBytes() {
+        if (_bytes != null) {
+            return _bytes;
+        }
+
+        byte[] bytes = _cache.getIfPresent(this);
+        if (bytes == null) {
+            bytes = decode();
+            _cache.put(this, bytes);
+        }
+        return bytes;
+    }
+
+    private synchronized byte[] decode() {
+        try {
+            if (_encoded != null) {
+                return Base64.decode(_encoded);
+            }
+            return _sealed.open();
+        } catch (MasterKeyException | EncodingException e) {
+            throw new IllegalStateException("Unable to open the icon", e);
+        }
+    }
+
+    /**
+     * Returns the Base64 encoding of the contents of the icon. This doesn't require decoding
+     * the icon if it was created from its Base64 encoding.
+     */
+    String toBase64() {
+        if (_encoded != null) {
+            return _encoded;
+        }
+        return Base64.encode(getBytes());
+    }
+
+    /**
+     * Returns the SHA-256 hash of the contents of the icon. This decodes the icon if it was
+     * created from its Base64 encoding and its hash hasn't been computed yet.
+     */
+    public synchronized byte[] getHash() {
+        if (_hash == null) {
+            _hash = digest(getBytes());
+        }
+
+        return _hash;
+    }
+
+    public String getHashString() {
+        return Hex.encode(getHash());
+    }
+
+    /**
+     * Reports whether the given icons have the same contents. Unlike equals, this may require
+     * decoding them.
+     */
+    public static boolean contentsEqual(@Nullable VaultEntryIcon icon1, @Nullable VaultEntryIcon icon2) {
+        if (icon1 == null || icon2 == null) {
+            return icon1 == icon2;
+        }
+
+        return icon1.equals(icon2) || Arrays.equals(icon1.getHash(), icon2.getHash());
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the sealed form of this icon for the given key. An existing sealed form is
+     * reused if it was sealed with the same key.
+     */
+    synchronized Sealed seal(MasterKey key) throws MasterKeyException {
+        if (_sealed == null || _sealed._key != key) {
+            CryptResult result = key.encrypt(getBytes());
+            _sealed = new Sealed(key, result.getParams(), Base64.encode(result.getData()));
+        }
+
+        return _sealed;
+    }
+
+    private Object writeReplace() {
+        // the key must not end up in the serialized icon, so the icon is opened instead
+        if (_sealed != null && _bytes == null && _encoded == null) {
+            return new VaultEntryIcon(_hash, _key, getBytes(), null, null);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VaultEntryIcon)) {
+            return false;
+        }
+
+        return Arrays.equals(_key, ((VaultEntryIcon) o)._key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(_key);
+    }
+
+    static class Sealed {
+        private final MasterKey _key;
+        private final CryptParameters _params;
+        private final String _data;
+
+        private Sealed(MasterKey key, CryptParameters params, String data) {
+            _key = key;
+            _params = params;
+            _data = data;
+        }
+
+        private byte[] open() throws MasterKeyException, EncodingException {
+            CryptResult result = _key.decrypt(Base64.decode(_data), _params);
+            return result.getData();
+        }
+
+        CryptParameters getParams() {
+            return _params;
+        }
+
+        String getData() {
+            return _data;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.beemdevelopment.aegis.vault;
+
+import androidx.annotation.Nullable;
+
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.CryptParameters;
+import com.beemdevelopment.aegis.crypto.CryptResult;
+import com.beemdevelopment.aegis.crypto.MasterKey;
+import com.beemdevelopment.aegis.crypto.MasterKeyException;
+import com.beemdevelopment.aegis.encoding.Base64;
+import com.beemdevelopment.aegis.encoding.EncodingException;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The sealed part of a vault entry in version 2 and 3 vault files: its icon and note. These
+ * are encrypted separately from the rest of the entry, so that unlocking the vault doesn't
+ * require decrypting them. The ciphertext is kept in the Base64 form it has in the vault
+ * file, so that an unchanged payload can be written back to disk as-is.
+ *
+ * Version 2 vault files encode the plaintext as JSON, version 3 vault files use protobuf. The
+ * latter keep the icons in a separate table (see VaultEntryIcon), so their payloads only
+ * contain the note.
+ */
+class VaultEntryPayload {
+    private final MasterKey _key;
+    private final CryptParameters _params;
+    private final String _data;
+    private final boolean _binary;
+
+    private VaultEntryPayload(MasterKey key, CryptParameters params, String data, boolean binary) {
+        _key = key;
+        _params = params;
+        _data = data;
+        _binary = binary;
+    }
+
+    static VaultEntryPayload seal(MasterKey key, String note, @Nullable byte[] icon, boolean binary) throws MasterKeyException {
+        byte[] bytes;
+        if (binary) {
+            if (icon != null) {
+                throw new IllegalArgumentException("Binary payloads can't contain an icon");
+            }
+            bytes = VaultProtos.Payload.newBuilder()
+                    .setNote(note)
+                    .build()
+                    .toByteArray();
+        } else {
+            JSONObject obj = new JSONObject();
+            try {
+                obj.put("note", note);
+                obj.put("icon", icon != null ? Base64.encode(icon) : JSONObject.NULL);
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+            bytes = obj.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        CryptResult result = key.encrypt(bytes);
+        return new VaultEntryPayload(key, result.getParams(), Base64.encode(result.getData()), binary);
+    }
+
+    /**
+     * Parses the reference to a payload in the index of a version 2 vault file. The given
+     * object is expected to contain the ciphertext under "data", in addition to the parameters.
+     */
+    static VaultEntryPayload fromJson(JSONObject obj, MasterKey key) throws JSONException, EncodingException {
+        CryptParameters params = CryptParameters.fromJson(obj);
+        return new VaultEntryPayload(key, params, obj.getString("data"), false);
+    }
+
+    /**
+     * Parses the reference to a payload in the index of a version 3 vault file.
+     */
+    static VaultEntryPayload fromProto(VaultProtos.PayloadParams proto, String data, MasterKey key) {
+        return new VaultEntryPayload(key, fromProto(proto), data, true);
+    }
+
+    static CryptParameters fromProto(VaultProtos.PayloadParams proto) {
+        return new CryptParameters(proto.getNonce().toByteArray(), proto.getTag().toByteArray());
+    }
+
+    static VaultProtos.PayloadParams toProto(CryptParameters params) {
+        return VaultProtos.PayloadParams.newBuilder()
+                .setNonce(ByteString.copyFrom(params.getNonce()))
+                .setTag(ByteString.copyFrom(params.getTag()))
+                .build();
+    }
+
+    VaultProtos.PayloadParams toProto() {
+        return toProto(_params);
+    }
+
+    Contents open() throws VaultEntryException {
+        try {
+            CryptResult result = _key.decrypt(Base64.decode(_data), _params);
+            if (_binary) {
+                VaultProtos.Payload proto = VaultProtos.Payload.parseFrom(result.getData());
+                return new Contents(proto.getNote(), null);
+            }
+
+            JSONObject obj = new JSONObject(new String(result.getData(), StandardCharsets.UTF_8));
+            byte[] icon = obj.isNull("icon") ? null : Base64.decode(obj.getString("icon"));
+            return new Contents(obj.optString("note", ""), icon);
+        } catch (MasterKeyException | EncodingException | JSONException | InvalidProtocolBufferException e) {
+            throw new VaultEntryException(e);
+        }
+    }
+
+    boolean isSealedWith(MasterKey key, boolean binary) {
+        return _key == key && _binary == binary;
+    }
+
+    CryptParameters getParams() {
+        return _params;
+    }
+
+    String getData() {
+        return _data;
+    }
+
+    static class Contents {
+        private final String _note;
+        private final byte[] _icon;
+
+        private Contents(String note, @Nullable byte[] icon) {
+            _note = note;
+            _icon = icon;
+        }
+
+        String getNote() {
+            return _note;
+        }
+
+        @Nullable
+        byte[] getIcon() {
+            return _icon;
+        }
+    }
+}
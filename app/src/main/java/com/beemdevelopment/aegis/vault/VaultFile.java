@@ -1,31 +1,93 @@
 package com.beemdevelopment.aegis.vault;
 
+import androidx.annotation.Nullable;
+
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.CryptOutputStream;
 import com.beemdevelopment.aegis.crypto.CryptParameters;
 import com.beemdevelopment.aegis.crypto.CryptResult;
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
 import com.beemdevelopment.aegis.crypto.MasterKeyException;
 import com.beemdevelopment.aegis.encoding.Base64;
 import com.beemdevelopment.aegis.encoding.EncodingException;
+import com.beemdevelopment.aegis.encoding.Hex;
 import com.beemdevelopment.aegis.vault.slots.SlotList;
 import com.beemdevelopment.aegis.vault.slots.SlotListException;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Versions 2 and 3 of the vault file format are only used for encrypted vaults. Instead of
+ * sealing the entire vault at once, the icon and note of every entry are sealed separately and
+ * stored in "payloads", keyed by the UUID of the entry. The "db" field then only holds the
+ * index: the vault without those payloads, but with the parameters needed to open them. This
+ * allows unlocking the vault without having to decrypt every icon. Version 2 encodes the index
+ * and the payloads as JSON, version 3 uses protobuf (see vault.proto). Version 3 also keeps
+ * the icons out of the payloads, in the "icons" table, keyed by the SHA-256 hash of their
+ * contents, so that an icon shared by several entries is only stored once. Older versions are still
+ * read, and are migrated to version 3 the next time the vault is written to disk in full.
+ *
+ * Exports only contain the "db" field, and are therefore always written in the version 1 format.
+ *
+ * The vault file in the app's storage is first only read up to its header (see readHeader),
+ * because that's all that's needed before the vault is unlocked. The rest of it is read from
+ * disk when it's needed, and isn't kept in memory afterwards (see VaultFileLayout).
+ */
 public class VaultFile {
-    public static final byte VERSION = 1;
+    public static final byte VERSION = 3;
 
+    private static final byte VERSION_WITHOUT_PAYLOADS = 1;
+    private static final byte VERSION_JSON_PAYLOADS = 2;
+
+    private int _version = VERSION_WITHOUT_PAYLOADS;
     private Object _content;
+    private JSONObject _icons;
+    private JSONObject _payloads;
     private Header _header;
 
+    // if not null, the content, icons and payloads have not been read from disk yet
+    private VaultFileLayout _layout;
+
     public VaultFile() {
 
     }
 
-    private VaultFile(Object content, Header header) {
+    private VaultFile(int version, Object content, JSONObject icons, JSONObject payloads, Header header) {
+        _version = version;
         _content = content;
+        _icons = icons;
+        _payloads = payloads;
+        _header = header;
+    }
+
+    private VaultFile(VaultFileLayout layout, Header header) {
+        _version = layout.getVersion();
         _header = header;
+        _layout = layout;
     }
 
     public Header getHeader() {
@@ -37,10 +99,20 @@ public class VaultFile {
     }
 
     public JSONObject toJson() {
+        if (_layout != null) {
+            throw new IllegalStateException("The contents of the vault file have not been read yet");
+        }
+
         try {
             JSONObject obj = new JSONObject();
-            obj.put("version", VERSION);
+            obj.put("version", _version);
             obj.put("header", _header.toJson());
+            if (_icons != null) {
+                obj.put("icons", _icons);
+            }
+            if (_payloads != null) {
+                obj.put("payloads", _payloads);
+            }
             obj.put("db", _content);
             return obj;
         } catch (JSONException e) {
@@ -59,18 +131,203 @@ public class VaultFile {
         }
     }
 
+    /**
+     * Serializes the given vault and writes it to the given stream in the same format as
+     * toBytes(), without ever holding a full copy of the serialized vault in memory. If creds
+     * is not null, the vault is encrypted on the fly and written in the version 3 format. The
+     * stream is not closed.
+     *
+     * Returns a VaultFile that only holds the header that was written to the stream. Once the
+     * stream has been written to the file it belongs to, bind(File) makes the rest readable.
+     */
+    public static VaultFile write(FileOutputStream stream, Vault vault, @Nullable VaultFileCredentials creds) throws VaultFileException {
+        return write(stream, vault, creds, true);
+    }
+
+    /**
+     * Like write(FileOutputStream, Vault, VaultFileCredentials), but if binary is false, an
+     * encrypted vault is written in the version 2 format instead.
+     *
+     * The tag of the encryption operation is only known once the entire vault has been
+     * written, so a placeholder is written to the header first and overwritten in place
+     * afterwards. That's why this requires a FileOutputStream.
+     */
+    public static VaultFile write(FileOutputStream stream, Vault vault, @Nullable VaultFileCredentials creds, boolean binary) throws VaultFileException {
+        try {
+            FileChannel channel = stream.getChannel();
+            long start = channel.position();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            Map<String, VaultFileLayout.Range> ranges = new HashMap<>();
+
+            if (creds == null) {
+                Header header = new Header(null, null);
+                String[] template = getTemplate(header, VERSION_WITHOUT_PAYLOADS);
+                writer.write(template[0]);
+                long offset = getPosition(writer, channel, start);
+                vault.writeJson(writer);
+                ranges.put("db", new VaultFileLayout.Range(offset, getPosition(writer, channel, start) - offset));
+                writer.write(template[1]);
+                writer.flush();
+                return new VaultFile(new VaultFileLayout(VERSION_WITHOUT_PAYLOADS, header.toJson(), ranges), header);
+            }
+
+            // closing the Base64 stream must not close the file stream, so we shield it here
+            OutputStream encodingStream = Base64.encodingStream(new FilterWriter(writer) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+            CryptOutputStream cryptStream = creds.encrypt(encodingStream);
+
+            byte[] placeholderTag = new byte[CryptoUtils.CRYPTO_AEAD_TAG_SIZE];
+            Header header = new Header(creds.getSlots(), new CryptParameters(cryptStream.getNonce(), placeholderTag));
+            int version = binary ? VERSION : VERSION_JSON_PAYLOADS;
+            String[] template = getTemplate(header, version);
+            int tagIndex = template[0].lastIndexOf(Hex.encode(placeholderTag));
+            long tagOffset = start + template[0].substring(0, tagIndex).getBytes(StandardCharsets.UTF_8).length;
+
+            // the icons and payloads precede the index, so that the index can reference them once they're sealed
+            int part = 0;
+            writer.write(template[part++]);
+            long offset = getPosition(writer, channel, start) - 1;
+            // keyed by the hash of the contents of the icons, as icons that were read from JSON
+            // don't necessarily compare equal to an identical icon from elsewhere
+            Map<ByteString, VaultEntryIcon.Sealed> icons = new HashMap<>();
+            if (binary) {
+                for (VaultEntry entry : vault.getEntries()) {
+                    if (!entry.hasIcon()) {
+                        continue;
+                    }
+
+                    ByteString hash = ByteString.copyFrom(entry.getIcon().getHash());
+                    if (icons.containsKey(hash)) {
+                        continue;
+                    }
+
+                    VaultEntryIcon.Sealed icon = entry.getIcon().seal(creds.getKey());
+                    writeTableEntry(writer, icons.isEmpty(), entry.getIcon().getHashString(), icon.getData());
+                    icons.put(hash, icon);
+                }
+                ranges.put("icons", writeTableEnd(writer, channel, start, offset, template[part++]));
+                offset = getPosition(writer, channel, start) - 1;
+            }
+
+            Map<UUID, VaultEntryPayload> payloads = new HashMap<>();
+            for (VaultEntry entry : vault.getEntries()) {
+                VaultEntryPayload payload = entry.getPayload(creds.getKey(), binary);
+                if (payload == null) {
+                    continue;
+                }
+
+                writeTableEntry(writer, payloads.isEmpty(), entry.getUUID().toString(), payload.getData());
+                payloads.put(entry.getUUID(), payload);
+            }
+
+            ranges.put("payloads", writeTableEnd(writer, channel, start, offset, template[part++]));
+            writer.write('"');
+            offset = getPosition(writer, channel, start) - 1;
+            if (binary) {
+                try (OutputStream vaultStream = cryptStream) {
+                    CodedOutputStream codedStream = CodedOutputStream.newInstance(vaultStream);
+                    vault.writeIndexProto(codedStream, payloads, icons);
+                    codedStream.flush();
+                }
+            } else {
+                try (Writer vaultWriter = new BufferedWriter(new OutputStreamWriter(cryptStream, StandardCharsets.UTF_8))) {
+                    vault.writeIndexJson(vaultWriter, payloads);
+                }
+            }
+            writer.write('"');
+            ranges.put("db", new VaultFileLayout.Range(offset, getPosition(writer, channel, start) - offset));
+            writer.write(template[part]);
+            writer.flush();
+
+            CryptParameters params = cryptStream.getParams();
+            byte[] tag = Hex.encode(params.getTag()).getBytes(StandardCharsets.UTF_8);
+            channel.write(ByteBuffer.wrap(tag), tagOffset);
+
+            header = new Header(creds.getSlots(), params);
+            return new VaultFile(new VaultFileLayout(version, header.toJson(), ranges), header);
+        } catch (MasterKeyException | IOException | JSONException e) {
+            throw new VaultFileException(e);
+        }
+    }
+
+    /**
+     * Returns the serialized form of a vault file with the given header and version, split at
+     * the contents of the icons and payloads objects (if the version has them) and at the value
+     * of the db field. This is put together by hand, because the order of the fields matters here.
+     */
+    private static String[] getTemplate(Header header, int version) throws JSONException {
+        String indent = "    ";
+        StringBuilder builder = new StringBuilder("{\n");
+        builder.append(indent).append("\"version\": ").append(version).append(",\n");
+        builder.append(indent).append("\"header\": ").append(header.toJson().toString(4).replace("\n", "\n" + indent)).append(",\n");
+
+        List<String> tables = new ArrayList<>();
+        if (version == VERSION) {
+            tables.add("icons");
+        }
+        if (version != VERSION_WITHOUT_PAYLOADS) {
+            tables.add("payloads");
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (String table : tables) {
+            builder.append(indent).append('"').append(table).append("\": {");
+            parts.add(builder.toString());
+            builder = new StringBuilder("\n").append(indent).append("},\n");
+        }
+
+        builder.append(indent).append("\"db\": ");
+        parts.add(builder.toString());
+        parts.add("\n}");
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * Flushes the writer and returns the number of bytes written to the file since the given
+     * start position.
+     */
+    private static long getPosition(Writer writer, FileChannel channel, long start) throws IOException {
+        writer.flush();
+        return channel.position() - start;
+    }
+
+    /**
+     * Writes the given part of the template, which closes the table that starts at the given
+     * offset, and returns the range that the table occupies.
+     */
+    private static VaultFileLayout.Range writeTableEnd(Writer writer, FileChannel channel, long start, long offset, String part) throws IOException {
+        long end = getPosition(writer, channel, start) + part.indexOf('}') + 1;
+        writer.write(part);
+        return new VaultFileLayout.Range(offset, end - offset);
+    }
+
+    private static void writeTableEntry(Writer writer, boolean first, String key, String data) throws IOException {
+        writer.write(first ? "\n        \"" : ",\n        \"");
+        writer.write(key);
+        writer.write("\": \"");
+        writer.write(data);
+        writer.write('"');
+    }
+
     public static VaultFile fromJson(JSONObject obj) throws VaultFileException {
         try {
-            if (obj.getInt("version") > VERSION) {
+            int version = obj.getInt("version");
+            if (version > VERSION) {
                 throw new VaultFileException("unsupported version");
             }
 
             Header header = Header.fromJson(obj.getJSONObject("header"));
             if (!header.isEmpty()) {
-                return new VaultFile(obj.getString("db"), header);
+                JSONObject icons = version == VERSION ? obj.getJSONObject("icons") : null;
+                JSONObject payloads = version > VERSION_WITHOUT_PAYLOADS ? obj.getJSONObject("payloads") : null;
+                return new VaultFile(version, obj.getString("db"), icons, payloads, header);
             }
 
-            return new VaultFile(obj.getJSONObject("db"), header);
+            return new VaultFile(version, obj.getJSONObject("db"), null, null, header);
         } catch (JSONException e) {
             throw new VaultFileException(e);
         }
@@ -85,22 +342,149 @@ public class VaultFile {
         }
     }
 
+    /**
+     * Reads the version and the header of the vault file from the given stream, which must
+     * have been opened on the given file. The rest of an encrypted vault file is only read
+     * from the file when it's needed. Plain vault files are read in full right away, because
+     * there's nothing to unlock.
+     */
+    public static VaultFile readHeader(InputStream stream, File file) throws VaultFileException {
+        try {
+            VaultFileLayout layout = VaultFileLayout.scan(new BufferedInputStream(stream), file);
+            if (layout.getVersion() > VERSION) {
+                throw new VaultFileException("unsupported version");
+            }
+
+            VaultFile vaultFile = new VaultFile(layout, Header.fromJson(layout.getHeader()));
+            return vaultFile.isEncrypted() ? vaultFile : vaultFile.resolve();
+        } catch (IOException | JSONException e) {
+            throw new VaultFileException(e);
+        }
+    }
+
+    /**
+     * Returns a copy of this VaultFile that reads the rest of the vault file from the given
+     * file when it's needed. This VaultFile must have been returned by write(), and the stream
+     * that it was written to must have been written to the given file.
+     */
+    public VaultFile bind(File file) {
+        if (_layout == null) {
+            throw new IllegalStateException("The vault file is already in memory");
+        }
+
+        return new VaultFile(_layout.bind(file), _header);
+    }
+
+    /**
+     * Returns this VaultFile if it's in memory in full. Otherwise, the rest of the vault file
+     * is read from disk and returned as a separate VaultFile, so that it doesn't stay in memory.
+     */
+    private VaultFile resolve() throws VaultFileException {
+        if (_layout == null) {
+            return this;
+        }
+
+        try {
+            return fromJson(_layout.read());
+        } catch (IOException | JSONException e) {
+            throw new VaultFileException(e);
+        }
+    }
+
+    /**
+     * Reports whether only the header of this vault file is in memory.
+     */
+    boolean isDeferred() {
+        return _layout != null;
+    }
+
     public JSONObject getContent() {
+        if (_layout != null) {
+            throw new IllegalStateException("The contents of the vault file have not been read yet");
+        }
+
         return (JSONObject) _content;
     }
 
+    /**
+     * Decrypts the vault. The sealed payloads of the entries in version 2 and 3 vault files are
+     * opened as well, so the result is always in the version 1 format.
+     */
     public JSONObject getContent(VaultFileCredentials creds) throws VaultFileException {
+        if (_layout != null) {
+            return resolve().getContent(creds);
+        }
+
+        if (_payloads == null) {
+            try {
+                return new JSONObject(new String(decrypt(creds), StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                throw new VaultFileException(e);
+            }
+        }
+
+        Vault vault = getVault(creds);
+        try {
+            return vault.toJson();
+        } catch (IllegalStateException e) {
+            // one of the payloads could not be opened
+            throw new VaultFileException(e);
+        }
+    }
+
+    /**
+     * Decrypts (if needed) and parses the vault. The sealed payloads of the entries in version
+     * 2 and 3 vault files are left sealed until the icon or note of an entry is needed.
+     */
+    public Vault getVault(@Nullable VaultFileCredentials creds) throws VaultFileException {
+        if (_layout != null) {
+            return resolve().getVault(creds);
+        }
+
+        try {
+            if (!isEncrypted()) {
+                return Vault.fromJson(getContent());
+            }
+
+            byte[] bytes = decrypt(creds);
+            switch (_version) {
+                case VERSION:
+                    return Vault.fromIndexProto(VaultProtos.Vault.parseFrom(bytes), _icons, _payloads, creds.getKey());
+                case VERSION_JSON_PAYLOADS:
+                    JSONObject obj = new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+                    JSONArray array = obj.getJSONArray("entries");
+                    for (int i = 0; i < array.length(); i++) {
+                        JSONObject entryObj = array.getJSONObject(i);
+                        JSONObject payloadObj = entryObj.optJSONObject("payload");
+                        if (payloadObj != null) {
+                            payloadObj.put("data", _payloads.getString(entryObj.getString("uuid")));
+                        }
+                    }
+                    return Vault.fromJson(obj, creds.getKey());
+                default:
+                    return Vault.fromJson(new JSONObject(new String(bytes, StandardCharsets.UTF_8)));
+            }
+        } catch (VaultException | JSONException | InvalidProtocolBufferException e) {
+            throw new VaultFileException(e);
+        }
+    }
+
+    private byte[] decrypt(VaultFileCredentials creds) throws VaultFileException {
         try {
             byte[] bytes = Base64.decode((String) _content);
             CryptResult result = creds.decrypt(bytes, _header.getParams());
-            return new JSONObject(new String(result.getData(), StandardCharsets.UTF_8));
-        } catch (MasterKeyException | JSONException | EncodingException e) {
+            return result.getData();
+        } catch (MasterKeyException | EncodingException e) {
             throw new VaultFileException(e);
         }
     }
 
     public void setContent(JSONObject obj) {
+        _layout = null;
+        _version = VERSION_WITHOUT_PAYLOADS;
         _content = obj;
+        _icons = null;
+        _payloads = null;
         _header = new Header(null, null);
     }
 
@@ -110,7 +494,11 @@ public class VaultFile {
             byte[] vaultBytes = string.getBytes(StandardCharsets.UTF_8);
 
             CryptResult result = creds.encrypt(vaultBytes);
+            _layout = null;
+            _version = VERSION_WITHOUT_PAYLOADS;
             _content = Base64.encode(result.getData());
+            _icons = null;
+            _payloads = null;
             _header = new Header(creds.getSlots(), result.getParams());
         } catch (MasterKeyException | JSONException e) {
             throw new VaultFileException(e);
@@ -120,13 +508,15 @@ public class VaultFile {
     /**
      * Returns a copy of this VaultFile that's suitable for exporting.
      * In case there's a backup password slot, any regular password slots are stripped.
+     * The rest of the vault file is read from disk first, if needed.
      */
-    public VaultFile exportable() {
+    public VaultFile exportable() throws VaultFileException {
         if (!isEncrypted()) {
-            return this;
+            return resolve();
         }
 
-        return new VaultFile(getContent(), new VaultFile.Header(
+        VaultFile file = resolve();
+        return new VaultFile(file._version, file._content, file._icons, file._payloads, new VaultFile.Header(
                 getHeader().getSlots().exportable(),
                 getHeader().getParams()
         ));
@@ -1,11 +1,14 @@
 package com.beemdevelopment.aegis.vault;
 
+import com.beemdevelopment.aegis.crypto.CryptOutputStream;
 import com.beemdevelopment.aegis.crypto.CryptParameters;
 import com.beemdevelopment.aegis.crypto.CryptResult;
 import com.beemdevelopment.aegis.crypto.MasterKey;
 import com.beemdevelopment.aegis.crypto.MasterKeyException;
+import com.beemdevelopment.aegis.vault.slots.Slot;
 import com.beemdevelopment.aegis.vault.slots.SlotList;
 
+import java.io.OutputStream;
 import java.io.Serializable;
 
 public class VaultFileCredentials implements Serializable {
@@ -26,6 +29,10 @@ public class VaultFileCredentials implements Serializable {
         return _key.encrypt(bytes);
     }
 
+    public CryptOutputStream encrypt(OutputStream stream) throws MasterKeyException {
+        return _key.encrypt(stream);
+    }
+
     public CryptResult decrypt(byte[] bytes, CryptParameters params) throws MasterKeyException {
         return _key.decrypt(bytes, params);
     }
@@ -38,6 +45,18 @@ public class VaultFileCredentials implements Serializable {
         return _slots;
     }
 
+    /**
+     * Returns a copy of these VaultFileCredentials that is unaffected by slots being
+     * added to or removed from the original afterwards.
+     */
+    public VaultFileCredentials copy() {
+        SlotList slots = new SlotList();
+        for (Slot slot : _slots) {
+            slots.add(slot);
+        }
+        return new VaultFileCredentials(_key, slots);
+    }
+
     /**
      * Returns a copy of these VaultFileCredentials that is suitable for exporting.
      * In case there's a backup password slot, any regular password slots are stripped.
@@ -0,0 +1,295 @@
+package com.beemdevelopment.aegis.vault;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The location of the fields of a vault file on disk. This allows reading the version and the
+ * header of a vault file (which is all that's needed before the vault is unlocked), without
+ * keeping the rest of it in memory. The other fields are only read from disk once they're
+ * actually needed, and are not kept around afterwards.
+ */
+class VaultFileLayout {
+    private final int _version;
+    private final JSONObject _header;
+    private final Map<String, Range> _ranges;
+
+    // the file that the ranges refer to, along with its length and modification time at the time it was scanned
+    @Nullable
+    private final File _file;
+    private final long _length;
+    private final long _lastModified;
+
+    VaultFileLayout(int version, JSONObject header, Map<String, Range> ranges) {
+        this(version, header, ranges, null);
+    }
+
+    private VaultFileLayout(int version, JSONObject header, Map<String, Range> ranges, @Nullable File file) {
+        _version = version;
+        _header = header;
+        _ranges = Collections.unmodifiableMap(ranges);
+        _file = file;
+        _length = file != null ? file.length() : 0;
+        _lastModified = file != null ? file.lastModified() : 0;
+    }
+
+    /**
+     * Scans the vault file in the given stream. Only the version and the header are parsed,
+     * the values of the other fields are skipped over and only their location is recorded.
+     */
+    static VaultFileLayout scan(InputStream stream, File file) throws IOException, JSONException {
+        Scanner scanner = new Scanner(stream);
+        Integer version = null;
+        JSONObject header = null;
+        Map<String, Range> ranges = new HashMap<>();
+
+        scanner.expect('{');
+        if (scanner.peekToken() == '}') {
+            scanner.read();
+        } else {
+            while (true) {
+                String key = cast(scanner.nextValue(true), String.class);
+                scanner.expect(':');
+                scanner.peekToken();
+
+                long offset = scanner.getPosition();
+                switch (key) {
+                    case "version":
+                        version = cast(scanner.nextValue(true), Integer.class);
+                        break;
+                    case "header":
+                        header = cast(scanner.nextValue(true), JSONObject.class);
+                        break;
+                    default:
+                        scanner.nextValue(false);
+                        ranges.put(key, new Range(offset, scanner.getPosition() - offset));
+                        break;
+                }
+
+                if (scanner.peekToken() == ',') {
+                    scanner.read();
+                    continue;
+                }
+                scanner.expect('}');
+                break;
+            }
+        }
+
+        if (version == null || header == null) {
+            throw new JSONException("Missing version or header");
+        }
+
+        return new VaultFileLayout(version, header, ranges, file);
+    }
+
+    private static <T> T cast(Object value, Class<T> type) throws JSONException {
+        if (!type.isInstance(value)) {
+            throw new JSONException(String.format("Expected a value of type %s", type.getSimpleName()));
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * Returns a copy of this layout that refers to the given file. The ranges are offsets
+     * from the start of the file.
+     */
+    VaultFileLayout bind(File file) {
+        return new VaultFileLayout(_version, _header, _ranges, file);
+    }
+
+    int getVersion() {
+        return _version;
+    }
+
+    JSONObject getHeader() {
+        return _header;
+    }
+
+    /**
+     * Reads the fields of the vault file from disk and returns it as a JSON object, in the
+     * same form as VaultFile.toJson().
+     */
+    JSONObject read() throws IOException, JSONException {
+        if (_file == null) {
+            throw new IllegalStateException("The layout doesn't refer to a file");
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(_file, "r")) {
+            // the file is only ever replaced as a whole, so the offsets are stale if it was replaced
+            if (file.length() != _length || _file.lastModified() != _lastModified) {
+                throw new IOException("The vault file has changed since it was scanned");
+            }
+
+            JSONObject obj = new JSONObject();
+            obj.put("version", _version);
+            obj.put("header", _header);
+            for (Map.Entry<String, Range> entry : _ranges.entrySet()) {
+                obj.put(entry.getKey(), entry.getValue().read(file));
+            }
+            return obj;
+        }
+    }
+
+    static class Range {
+        private final long _offset;
+        private final long _length;
+
+        Range(long offset, long length) {
+            _offset = offset;
+            _length = length;
+        }
+
+        private Object read(RandomAccessFile file) throws IOException, JSONException {
+            byte[] bytes = new byte[(int) _length];
+            file.seek(_offset);
+            file.readFully(bytes);
+
+            // the ciphertext of the vault can be several megabytes, so skip the tokenizer if there's nothing to unescape
+            if (bytes.length >= 2 && bytes[0] == '"' && bytes[bytes.length - 1] == '"' && indexOf(bytes, (byte) '\\') == -1) {
+                return new String(bytes, 1, bytes.length - 2, StandardCharsets.UTF_8);
+            }
+
+            return new JSONTokener(new String(bytes, StandardCharsets.UTF_8)).nextValue();
+        }
+
+        private static int indexOf(byte[] bytes, byte b) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A minimal JSON scanner that keeps track of its position in the stream. It only
+     * understands enough of JSON to find the boundaries of values. Values are only parsed
+     * (with JSONTokener) when asked to, so that skipping over a large value is cheap.
+     */
+    private static class Scanner {
+        private final InputStream _stream;
+        private long _position;
+        private int _peeked = -1;
+
+        private Scanner(InputStream stream) {
+            _stream = stream;
+        }
+
+        long getPosition() {
+            return _position;
+        }
+
+        int read() throws IOException {
+            int b = _peeked;
+            if (b != -1) {
+                _peeked = -1;
+            } else {
+                b = _stream.read();
+                if (b == -1) {
+                    throw new EOFException();
+                }
+            }
+
+            _position++;
+            return b;
+        }
+
+        private int peek() throws IOException {
+            if (_peeked == -1) {
+                _peeked = _stream.read();
+                if (_peeked == -1) {
+                    throw new EOFException();
+                }
+            }
+            return _peeked;
+        }
+
+        /**
+         * Skips any whitespace and returns the next byte without consuming it.
+         */
+        int peekToken() throws IOException {
+            while (Character.isWhitespace(peek())) {
+                read();
+            }
+            return peek();
+        }
+
+        void expect(char c) throws IOException, JSONException {
+            if (peekToken() != c) {
+                throw new JSONException(String.format("Expected '%c' at offset %d", c, _position));
+            }
+            read();
+        }
+
+        /**
+         * Consumes the next value. If parse is true, the value is parsed and returned.
+         * Otherwise, it's skipped over and null is returned.
+         */
+        @Nullable
+        Object nextValue(boolean parse) throws IOException, JSONException {
+            ByteArrayOutputStream buf = parse ? new ByteArrayOutputStream() : null;
+            int depth = 0;
+            boolean inString = false;
+            boolean inLiteral = false;
+
+            peekToken();
+            while (true) {
+                int b = peek();
+                if (inLiteral && (b == ',' || b == '}' || b == ']' || Character.isWhitespace(b))) {
+                    break;
+                }
+
+                read();
+                if (buf != null) {
+                    buf.write(b);
+                }
+
+                if (inString) {
+                    if (b == '\\') {
+                        int escaped = read();
+                        if (buf != null) {
+                            buf.write(escaped);
+                        }
+                    } else if (b == '"') {
+                        inString = false;
+                        if (depth == 0) {
+                            break;
+                        }
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        break;
+                    }
+                } else if (depth == 0) {
+                    // a number or one of true, false and null
+                    inLiteral = true;
+                }
+            }
+
+            if (buf == null) {
+                return null;
+            }
+            return new JSONTokener(new String(buf.toByteArray(), StandardCharsets.UTF_8)).nextValue();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.beemdevelopment.aegis.vault;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.beemdevelopment.aegis.crypto.CryptParameters;
+import com.beemdevelopment.aegis.crypto.CryptResult;
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+import com.beemdevelopment.aegis.crypto.MasterKeyException;
+import com.beemdevelopment.aegis.encoding.Hex;
+import com.beemdevelopment.aegis.util.UUIDMap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An append-only log of changes made to the vault since it was last written to disk in full.
+ * Every change is sealed individually with the master key and is bound to the vault file it
+ * applies to through the nonce in that file's header. A journal that belongs to a different
+ * vault file (e.g. because it was compacted, but the journal could not be deleted afterwards)
+ * is ignored.
+ *
+ * The format of every record is: length (int), nonce, tag, ciphertext.
+ */
+public class VaultJournal {
+    public static final String FILENAME = "aegis.journal";
+
+    /**
+     * The size in bytes above which the journal should be folded back into the vault file.
+     */
+    public static final long COMPACTION_THRESHOLD = 256 * 1024;
+
+    private static final int RECORD_MAX_LENGTH = 64 * 1024 * 1024;
+
+    private final File _file;
+
+    public VaultJournal(File file) {
+        _file = file;
+    }
+
+    public static VaultJournal get(Context context) {
+        return new VaultJournal(new File(context.getFilesDir(), FILENAME));
+    }
+
+    public long getLength() {
+        return _file.length();
+    }
+
+    public void delete() {
+        _file.delete();
+    }
+
+    /**
+     * Seals the given changes and appends them to the journal. The changes are numbered
+     * consecutively, starting at the given sequence number. If that number is 0, the journal
+     * is started over, so that any records left behind for a different vault file are dropped.
+     */
+    public void append(List<Change> changes, byte[] baseNonce, long seq, VaultFileCredentials creds) throws VaultJournalException {
+        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+             DataOutputStream dataStream = new DataOutputStream(byteStream)) {
+            for (Change change : changes) {
+                JSONObject obj = change.toJson();
+                obj.put("base", Hex.encode(baseNonce));
+                obj.put("seq", seq++);
+
+                CryptResult result = creds.encrypt(obj.toString().getBytes(StandardCharsets.UTF_8));
+                CryptParameters params = result.getParams();
+                dataStream.writeInt(params.getNonce().length + params.getTag().length + result.getData().length);
+                dataStream.write(params.getNonce());
+                dataStream.write(params.getTag());
+                dataStream.write(result.getData());
+            }
+
+            // append all records at once, so that a single fsync covers them
+            try (FileOutputStream outStream = new FileOutputStream(_file, seq != 0)) {
+                byteStream.writeTo(outStream);
+                outStream.getFD().sync();
+            }
+        } catch (IOException | JSONException | MasterKeyException e) {
+            throw new VaultJournalException(e);
+        }
+    }
+
+    /**
+     * Reads and unseals all changes in the journal that belong to the vault file with the
+     * given nonce. A torn record at the end of the journal (caused by a crash during an
+     * append) is ignored and cut off, so that the next append doesn't end up behind it.
+     */
+    @NonNull
+    public List<JSONObject> read(byte[] baseNonce, VaultFileCredentials creds) throws VaultJournalException {
+        List<JSONObject> changes = new ArrayList<>();
+        // the offset of the end of the last complete record
+        long end = 0;
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+            while (true) {
+                byte[] record;
+                try {
+                    int len = stream.readInt();
+                    if (len < CryptoUtils.CRYPTO_AEAD_NONCE_SIZE + CryptoUtils.CRYPTO_AEAD_TAG_SIZE || len > RECORD_MAX_LENGTH) {
+                        throw new VaultJournalException(String.format("Bad record length: %d", len));
+                    }
+
+                    record = new byte[len];
+                    stream.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] nonce = Arrays.copyOfRange(record, 0, CryptoUtils.CRYPTO_AEAD_NONCE_SIZE);
+                int tagEnd = CryptoUtils.CRYPTO_AEAD_NONCE_SIZE + CryptoUtils.CRYPTO_AEAD_TAG_SIZE;
+                byte[] tag = Arrays.copyOfRange(record, CryptoUtils.CRYPTO_AEAD_NONCE_SIZE, tagEnd);
+                byte[] data = Arrays.copyOfRange(record, tagEnd, record.length);
+
+                CryptResult result = creds.decrypt(data, new CryptParameters(nonce, tag));
+                JSONObject obj = new JSONObject(new String(result.getData(), StandardCharsets.UTF_8));
+                if (!Arrays.equals(Hex.decode(obj.getString("base")), baseNonce)) {
+                    // this journal was written for a different vault file
+                    return new ArrayList<>();
+                }
+                if (obj.getLong("seq") != changes.size()) {
+                    throw new VaultJournalException(String.format("Unexpected sequence number: %d", obj.getLong("seq")));
+                }
+
+                changes.add(obj);
+                end += Integer.BYTES + record.length;
+            }
+        } catch (FileNotFoundException e) {
+            return changes;
+        } catch (IOException | JSONException | MasterKeyException e) {
+            throw new VaultJournalException(e);
+        }
+
+        if (_file.length() > end) {
+            truncate(end);
+        }
+
+        return changes;
+    }
+
+    private void truncate(long length) throws VaultJournalException {
+        try (RandomAccessFile file = new RandomAccessFile(_file, "rw")) {
+            file.setLength(length);
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new VaultJournalException(e);
+        }
+    }
+
+    /**
+     * Applies the given change (as read from the journal) to the given map of entries.
+     */
+    public static void apply(UUIDMap<VaultEntry> entries, JSONObject obj) throws VaultJournalException {
+        try {
+            String type = obj.getString("type");
+            switch (type) {
+                case Change.ADD:
+                    VaultEntry newEntry = VaultEntry.fromJson(obj.getJSONObject("entry"));
+                    if (entries.has(newEntry.getUUID())) {
+                        throw new VaultJournalException(String.format("Existing entry found with UUID: %s", newEntry.getUUID()));
+                    }
+                    entries.add(newEntry);
+                    break;
+                case Change.REPLACE:
+                    VaultEntry entry = VaultEntry.fromJson(obj.getJSONObject("entry"));
+                    requireEntry(entries, entry.getUUID());
+                    entries.replace(entry);
+                    break;
+                case Change.REMOVE:
+                    entries.remove(requireEntry(entries, UUID.fromString(obj.getString("uuid"))));
+                    break;
+                case Change.SWAP:
+                    VaultEntry entry1 = requireEntry(entries, UUID.fromString(obj.getString("uuid1")));
+                    VaultEntry entry2 = requireEntry(entries, UUID.fromString(obj.getString("uuid2")));
+                    entries.swap(entry1, entry2);
+                    break;
+                case Change.WIPE:
+                    entries.wipe();
+                    break;
+                default:
+                    throw new VaultJournalException(String.format("Unknown change type: %s", type));
+            }
+        } catch (JSONException | VaultEntryException | IllegalArgumentException e) {
+            throw new VaultJournalException(e);
+        }
+    }
+
+    private static VaultEntry requireEntry(UUIDMap<VaultEntry> entries, UUID uuid) throws VaultJournalException {
+        if (!entries.has(uuid)) {
+            throw new VaultJournalException(String.format("No entry found with UUID: %s", uuid));
+        }
+
+        return entries.getByUUID(uuid);
+    }
+
+    /**
+     * A change to the vault that has not been written to disk yet. Entries are only serialized
+     * when the change is appended to the journal, so that any changes made to the entry in
+     * place in the meantime (like a HOTP counter increment) are included.
+     */
+    static class Change {
+        static final String ADD = "add";
+        static final String REPLACE = "replace";
+        static final String REMOVE = "remove";
+        static final String SWAP = "swap";
+        static final String WIPE = "wipe";
+
+        private final String _type;
+        private final VaultEntry _entry;
+        private final UUID _uuid1;
+        private final UUID _uuid2;
+
+        private Change(String type, VaultEntry entry, UUID uuid1, UUID uuid2) {
+            _type = type;
+            _entry = entry;
+            _uuid1 = uuid1;
+            _uuid2 = uuid2;
+        }
+
+        static Change add(VaultEntry entry) {
+            return new Change(ADD, entry, null, null);
+        }
+
+        static Change replace(VaultEntry entry) {
+            return new Change(REPLACE, entry, null, null);
+        }
+
+        static Change remove(VaultEntry entry) {
+            return new Change(REMOVE, null, entry.getUUID(), null);
+        }
+
+        static Change swap(VaultEntry entry1, VaultEntry entry2) {
+            return new Change(SWAP, null, entry1.getUUID(), entry2.getUUID());
+        }
+
+        static Change wipe() {
+            return new Change(WIPE, null, null, null);
+        }
+
+        /**
+         * Returns a copy of this change that is unaffected by any later changes made to its
+         * entry in place.
+         */
+        Change copy() {
+            return new Change(_type, _entry != null ? _entry.copy() : null, _uuid1, _uuid2);
+        }
+
+        /**
+         * Applies this change to the given map of entries. The entry of this change is added
+         * to the map as-is, so this should only be called on a copy.
+         */
+        void apply(UUIDMap<VaultEntry> entries) {
+            switch (_type) {
+                case ADD:
+                    entries.add(_entry);
+                    break;
+                case REPLACE:
+                    entries.replace(_entry);
+                    break;
+                case REMOVE:
+                    entries.remove(entries.getByUUID(_uuid1));
+                    break;
+                case SWAP:
+                    entries.swap(entries.getByUUID(_uuid1), entries.getByUUID(_uuid2));
+                    break;
+                case WIPE:
+                    entries.wipe();
+                    break;
+            }
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject obj = new JSONObject();
+            obj.put("type", _type);
+            if (_entry != null) {
+                obj.put("entry", _entry.toJson());
+            }
+            if (_type.equals(REMOVE)) {
+                obj.put("uuid", _uuid1.toString());
+            } else if (_type.equals(SWAP)) {
+                obj.put("uuid1", _uuid1.toString());
+                obj.put("uuid2", _uuid2.toString());
+            }
+            return obj;
+        }
+    }
+}
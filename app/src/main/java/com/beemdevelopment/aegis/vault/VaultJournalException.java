@@ -0,0 +1,11 @@
+package com.beemdevelopment.aegis.vault;
+
+public class VaultJournalException extends Exception {
+    public VaultJournalException(Throwable cause) {
+        super(cause);
+    }
+
+    public VaultJournalException(String message) {
+        super(message);
+    }
+}
@@ -5,6 +5,8 @@ import android.app.backup.BackupManager;
 import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -16,6 +18,9 @@ import com.beemdevelopment.aegis.crypto.KeyStoreHandle;
 import com.beemdevelopment.aegis.crypto.KeyStoreHandleException;
 import com.beemdevelopment.aegis.services.NotificationService;
 import com.beemdevelopment.aegis.ui.dialogs.Dialogs;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -24,8 +29,19 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class VaultManager {
+    private static final String TAG = VaultManager.class.getSimpleName();
+
+    // the delay used to coalesce bursts of save requests into a single write
+    private static final long SAVE_DELAY_MS = 250;
+
     private final Context _context;
     private final Preferences _prefs;
 
@@ -39,13 +55,41 @@ public class VaultManager {
     private final List<LockListener> _lockListeners;
     private boolean _blockAutoLock;
 
+    // all writes to the vault file happen on this thread, in the order they were scheduled in
+    private final ScheduledExecutorService _persister;
+    // the last load of the vault file (at startup or after locking), which is awaited by
+    // everything that depends on its result
+    private volatile Future<?> _vaultFileLoader;
+    // guarded by this
+    private PendingSave _pendingSave;
+
     public VaultManager(@NonNull Context context) {
         _context = context;
         _prefs = new Preferences(_context);
         _backups = new VaultBackupManager(_context);
         _androidBackups = new BackupManager(context);
         _lockListeners = new ArrayList<>();
-        loadVaultFile();
+        _persister = Executors.newSingleThreadScheduledExecutor();
+
+        // reading and parsing the vault file is kept off of the main thread during startup
+        _vaultFileLoader = _persister.submit(() -> {
+            long start = SystemClock.elapsedRealtime();
+            loadVaultFile();
+            Log.i(TAG, String.format("Loaded the vault file in %d ms", SystemClock.elapsedRealtime() - start));
+        });
+    }
+
+    /**
+     * Blocks until the last load of the vault file has finished. This is usually a no-op.
+     */
+    private void awaitVaultFile() {
+        if (_vaultFileLoader.isDone()) {
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Futures.getUnchecked(_vaultFileLoader);
+        Log.i(TAG, String.format("Waited %d ms for the vault file to load", SystemClock.elapsedRealtime() - start));
     }
 
     private void loadVaultFile() {
@@ -60,7 +104,9 @@ public class VaultManager {
 
         if (_vaultFile != null && !_vaultFile.isEncrypted()) {
             try {
-                load(_vaultFile, null);
+                // the public load method can't be used here, as it awaits this initial load
+                _repo = VaultRepository.fromFile(_context, _vaultFile, null);
+                _vaultFile = null;
             } catch (VaultRepositoryException e) {
                 e.printStackTrace();
                 _vaultFile = null;
@@ -77,6 +123,7 @@ public class VaultManager {
      */
     @NonNull
     public VaultRepository init(@Nullable VaultFileCredentials creds) throws VaultRepositoryException {
+        awaitVaultFile();
         if (isVaultLoaded()) {
             throw new IllegalStateException("Vault manager is already initialized");
         }
@@ -101,6 +148,7 @@ public class VaultManager {
      */
     @NonNull
     public VaultRepository load(@NonNull VaultFile vaultFile, @Nullable VaultFileCredentials creds) throws VaultRepositoryException {
+        awaitVaultFile();
         if (isVaultLoaded()) {
             throw new IllegalStateException("Vault manager is already initialized");
         }
@@ -128,14 +176,53 @@ public class VaultManager {
      * @param userInitiated whether or not the user initiated the lock in MainActivity.
      */
     public void lock(boolean userInitiated) {
+        awaitVaultFile();
+
+        // this is cleared before the vault file is loaded again, which may set it for an unencrypted vault
+        VaultRepository repo = _repo;
         _repo = null;
 
+        if (repo != null) {
+            // the entries may outlive the repository, but the keys of their OTP generators and their codes shouldn't
+            // the code cache is closed first, so that prefetching can't recreate a generator afterwards
+            repo.getCodeCache().close();
+            for (VaultEntry entry : repo.getEntries()) {
+                entry.getInfo().resetGenerator();
+            }
+
+            // make sure that everything is written to disk and fold the journal back into the vault
+            // file, so that the next unlock doesn't have to replay it
+            // this happens in the background, but anything that needs the vault file waits for it
+            _vaultFileLoader = _persister.submit(() -> {
+                persist();
+
+                VaultFile file = null;
+                try {
+                    if (repo.isCompactionNeeded()) {
+                        repo.compact();
+                    }
+                    file = repo.getFile();
+                } catch (VaultRepositoryException e) {
+                    e.printStackTrace();
+                }
+
+                // the header of the vault file on disk is already known, unless the last write failed
+                if (file != null && file.isEncrypted()) {
+                    _vaultFile = file;
+                    _vaultFileError = null;
+                } else {
+                    loadVaultFile();
+                }
+            });
+        } else {
+            _vaultFileLoader = _persister.submit(this::loadVaultFile);
+        }
+
         for (LockListener listener : _lockListeners) {
             listener.onLocked(userInitiated);
         }
 
         stopNotificationService();
-        loadVaultFile();
     }
 
     public void enableEncryption(VaultFileCredentials creds) throws VaultRepositoryException {
@@ -160,19 +247,137 @@ public class VaultManager {
         stopNotificationService();
     }
 
+    /**
+     * Saves the vault and blocks until it has been written to disk.
+     */
     public void save() throws VaultRepositoryException {
-        getVault().save();
+        await(scheduleSave());
     }
 
+    /**
+     * Saves the vault, blocks until it has been written to disk and schedules a backup.
+     */
     public void saveAndBackup() throws VaultRepositoryException {
-        save();
+        await(scheduleSaveAndBackup());
+    }
+
+    /**
+     * Schedules a save of the vault on a background thread. A snapshot of the changes made to
+     * the vault is taken right away, but bursts of save requests are coalesced into a single write. The returned
+     * future completes once the vault has been written to disk.
+     */
+    public ListenableFuture<Void> scheduleSave() {
+        return schedule(false);
+    }
+
+    /**
+     * Like scheduleSave, but also schedules a backup once the vault has been written to disk.
+     * Backup errors are not reported through the returned future, but through the preferences.
+     */
+    public ListenableFuture<Void> scheduleSaveAndBackup() {
+        return schedule(true);
+    }
+
+    /**
+     * Blocks until all scheduled saves have been written to disk.
+     */
+    public void flush() throws VaultRepositoryException {
+        ListenableFuture<Void> result;
+        synchronized (this) {
+            result = _pendingSave != null ? _pendingSave.getResult() : Futures.immediateFuture(null);
+        }
+
+        await(result);
+    }
+
+    /**
+     * Starts writing all scheduled saves to disk right away, without waiting for them. Errors
+     * are reported through the futures returned when the saves were scheduled.
+     */
+    public void scheduleFlush() {
+        _persister.execute(this::persist);
+    }
+
+    private synchronized ListenableFuture<Void> schedule(boolean backup) {
+        // Android's backup agent copies the vault file as-is, so it can't contain a journal
+        boolean fullWrite = backup && getVault().isEncryptionEnabled() && _prefs.isAndroidBackupsEnabled();
+        VaultRepository.Snapshot snapshot = getVault().snapshot(fullWrite);
+
+        if (_pendingSave == null) {
+            _pendingSave = new PendingSave(snapshot, backup);
+            _persister.schedule(this::persist, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } else {
+            _pendingSave.merge(snapshot, backup);
+        }
+
+        return _pendingSave.getResult();
+    }
+
+    private void await(ListenableFuture<Void> result) throws VaultRepositoryException {
+        // don't wait for the delay to pass
+        runOnPersister(() -> {
+            persist();
+            return null;
+        });
+
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VaultRepositoryException(e);
+        }
+    }
+
+    private <T> T runOnPersister(Callable<T> callable) throws VaultRepositoryException {
+        Future<T> future = _persister.submit(callable);
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VaultRepositoryException(e);
+        }
+    }
+
+    private void persist() {
+        PendingSave save;
+        synchronized (this) {
+            save = _pendingSave;
+            _pendingSave = null;
+        }
+
+        // this save may already have been persisted by an earlier call to flush
+        if (save == null) {
+            return;
+        }
+
+        VaultRepository.Snapshot snapshot = save.getSnapshot();
+        try {
+            snapshot.getRepository().save(snapshot);
+        } catch (VaultRepositoryException | RuntimeException e) {
+            // anyone waiting on the result must always be released
+            save.getResult().setException(e);
+            return;
+        }
+
+        if (save.isBackup()) {
+            backup(snapshot);
+        }
 
+        save.getResult().set(null);
+    }
+
+    private void backup(VaultRepository.Snapshot snapshot) {
         boolean backedUp = false;
-        if (getVault().isEncryptionEnabled()) {
+        if (snapshot.isEncrypted()) {
             if (_prefs.isBackupsEnabled()) {
                 backedUp = true;
                 try {
-                    scheduleBackup();
+                    scheduleBackup(snapshot::export);
                     _prefs.setBackupsError(null);
                 } catch (VaultRepositoryException e) {
                     _prefs.setBackupsError(e);
@@ -191,6 +396,11 @@ public class VaultManager {
     }
 
     public void scheduleBackup() throws VaultRepositoryException {
+        flush();
+        scheduleBackup(getVault()::export);
+    }
+
+    private void scheduleBackup(Exporter exporter) throws VaultRepositoryException {
         _prefs.setIsBackupReminderNeeded(false);
 
         try {
@@ -201,7 +411,7 @@ public class VaultManager {
 
             File tempFile = File.createTempFile(VaultBackupManager.FILENAME_PREFIX, ".json", dir);
             try (OutputStream outStream = new FileOutputStream(tempFile)) {
-                _repo.export(outStream);
+                exporter.export(outStream);
             }
 
             _backups.scheduleBackup(tempFile, _prefs.getBackupsLocation(), _prefs.getBackupsVersionCount());
@@ -246,10 +456,12 @@ public class VaultManager {
     }
 
     public boolean isVaultLoaded() {
+        awaitVaultFile();
         return _repo != null;
     }
 
     public boolean isVaultFileLoaded() {
+        awaitVaultFile();
         return _vaultFile != null;
     }
 
@@ -268,6 +480,7 @@ public class VaultManager {
 
     @NonNull
     public VaultFile getVaultFile() {
+        awaitVaultFile();
         if (_vaultFile == null) {
             throw new IllegalStateException("Vault file is not in memory");
         }
@@ -277,6 +490,7 @@ public class VaultManager {
 
     @Nullable
     public VaultRepositoryException getVaultFileError() {
+        awaitVaultFile();
         return _vaultFileError;
     }
 
@@ -340,6 +554,14 @@ public class VaultManager {
         return new Intent(_context, NotificationService.class);
     }
 
+    private static VaultRepositoryException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof VaultRepositoryException) {
+            return (VaultRepositoryException) e.getCause();
+        }
+
+        return new VaultRepositoryException(e.getCause());
+    }
+
     private static boolean isDocsAction(@Nullable String action) {
         return action != null && (action.equals(Intent.ACTION_GET_CONTENT)
                 || action.equals(Intent.ACTION_CREATE_DOCUMENT)
@@ -354,4 +576,36 @@ public class VaultManager {
          */
         void onLocked(boolean userInitiated);
     }
+
+    private interface Exporter {
+        void export(OutputStream stream) throws VaultRepositoryException;
+    }
+
+    private static class PendingSave {
+        private VaultRepository.Snapshot _snapshot;
+        private boolean _backup;
+        private final SettableFuture<Void> _result = SettableFuture.create();
+
+        PendingSave(VaultRepository.Snapshot snapshot, boolean backup) {
+            _snapshot = snapshot;
+            _backup = backup;
+        }
+
+        void merge(VaultRepository.Snapshot snapshot, boolean backup) {
+            _snapshot = _snapshot.merge(snapshot);
+            _backup |= backup;
+        }
+
+        VaultRepository.Snapshot getSnapshot() {
+            return _snapshot;
+        }
+
+        boolean isBackup() {
+            return _backup;
+        }
+
+        SettableFuture<Void> getResult() {
+            return _result;
+        }
+    }
 }
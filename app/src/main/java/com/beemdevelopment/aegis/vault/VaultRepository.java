@@ -11,7 +11,6 @@ import com.beemdevelopment.aegis.util.IOUtils;
 
 import org.json.JSONObject;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -20,7 +19,9 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.text.Collator;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.UUID;
 
@@ -39,10 +40,45 @@ public class VaultRepository {
     @NonNull
     private final Context _context;
 
+    @NonNull
+    private final VaultJournal _journal;
+
+    // the changes that have been made since the last save
+    private final List<VaultJournal.Change> _changes = new ArrayList<>();
+
+    // whether the next save must write the vault to disk in full (e.g. because the credentials changed)
+    private boolean _fullWriteNeeded;
+
+    // the nonce of the vault file on disk that the journal applies to, or null if the journal
+    // can't be appended to until the vault has been written to disk in full again
+    // these are only accessed from the thread that VaultManager persists the vault on
+    @Nullable
+    private byte[] _journalBase;
+    private long _journalSeq;
+
+    // the vault file on disk, with only its header in memory, or null if it's unknown (e.g.
+    // because the last write failed), so that locking the vault doesn't require reading it again
+    // this is only accessed from the thread that VaultManager persists the vault on after construction
+    @Nullable
+    private VaultFile _file;
+
+    // a copy of the vault that the recorded changes are applied to as they're saved, so that
+    // the vault can be written to disk in full without copying it on the thread that saves it
+    // these are only accessed from the thread that VaultManager persists the vault on after construction
+    @NonNull
+    private Vault _persisted;
+    @Nullable
+    private VaultFileCredentials _persistedCreds;
+
+    private final OtpCodeCache _codes = new OtpCodeCache();
+
     public VaultRepository(@NonNull Context context, @NonNull Vault vault, @Nullable VaultFileCredentials creds) {
         _context = context;
         _vault = vault;
         _creds = creds;
+        _journal = VaultJournal.get(context);
+        _persisted = vault.copy();
+        _persistedCreds = creds != null ? creds.copy() : null;
     }
 
     private static AtomicFile getAtomicFile(Context context) {
@@ -56,14 +92,18 @@ public class VaultRepository {
 
     public static void deleteFile(Context context) {
         getAtomicFile(context).delete();
+        VaultJournal.get(context).delete();
     }
 
+    /**
+     * Reads the vault file up to its header. The rest of an encrypted vault file is only read
+     * when the vault is unlocked.
+     */
     public static VaultFile readVaultFile(Context context) throws VaultRepositoryException {
         AtomicFile file = getAtomicFile(context);
 
-        try {
-            byte[] fileBytes = file.readFully();
-            return VaultFile.fromBytes(fileBytes);
+        try (InputStream stream = file.openRead()) {
+            return VaultFile.readHeader(stream, file.getBaseFile());
         } catch (IOException | VaultFileException e) {
             throw new VaultRepositoryException(e);
         }
@@ -91,42 +131,143 @@ public class VaultRepository {
         }
 
         Vault vault;
+        List<JSONObject> changes = new ArrayList<>();
         try {
-            JSONObject obj;
-            if (!file.isEncrypted()) {
-                obj = file.getContent();
-            } else {
-                obj = file.getContent(creds);
+            // this leaves the icons and notes sealed until they're actually needed
+            vault = file.getVault(creds);
+
+            // replay any changes that haven't been folded back into the vault file yet
+            if (file.isEncrypted()) {
+                changes = VaultJournal.get(context).read(file.getHeader().getParams().getNonce(), creds);
+                for (JSONObject change : changes) {
+                    VaultJournal.apply(vault.getEntries(), change);
+                }
             }
-
-            vault = Vault.fromJson(obj);
-        } catch (VaultException | VaultFileException e) {
+        } catch (VaultFileException | VaultJournalException e) {
             throw new VaultRepositoryException(e);
         }
 
-        return new VaultRepository(context, vault, creds);
+        VaultRepository repo = new VaultRepository(context, vault, creds);
+        repo._file = file.isDeferred() ? file : null;
+        if (file.isEncrypted()) {
+            repo._journalBase = file.getHeader().getParams().getNonce();
+            repo._journalSeq = changes.size();
+        }
+        return repo;
+    }
+
+    /**
+     * Takes a snapshot of the changes made to the vault since the last snapshot. The snapshot
+     * is unaffected by any changes made to the vault afterwards, so it can be saved on a
+     * background thread. Only the recorded changes are copied, unless there aren't any. A
+     * snapshot without any recorded changes copies the entire vault and always requires a
+     * full write, because in-place changes to entries or slots are not tracked. This is
+     * recorded in the snapshot itself, so that it survives merging it with other snapshots.
+     * @param fullWrite whether saving the snapshot must write the vault to disk in full.
+     */
+    @NonNull
+    Snapshot snapshot(boolean fullWrite) {
+        List<VaultJournal.Change> changes = new ArrayList<>();
+        for (VaultJournal.Change change : _changes) {
+            changes.add(change.copy());
+        }
+
+        boolean untracked = changes.isEmpty();
+        Vault vault = untracked ? _vault.copy() : null;
+        Snapshot snapshot = new Snapshot(this, vault, changes, _creds != null ? _creds.copy() : null, _fullWriteNeeded || fullWrite || untracked);
+        _changes.clear();
+        _fullWriteNeeded = false;
+        return snapshot;
     }
 
-    void save() throws VaultRepositoryException {
+    /**
+     * Saves the given snapshot. If possible, this only appends the changes in the snapshot to
+     * the journal. Otherwise, the vault is written to disk in full.
+     *
+     * This is only called from the thread that VaultManager persists the vault on.
+     */
+    void save(Snapshot snapshot) throws VaultRepositoryException {
+        apply(snapshot);
+
+        if (snapshot._fullWrite
+                || snapshot._creds == null
+                || _journalBase == null
+                || _journal.getLength() > VaultJournal.COMPACTION_THRESHOLD) {
+            compact();
+            return;
+        }
+
         try {
-            JSONObject obj = _vault.toJson();
+            _journal.append(snapshot._changes, _journalBase, _journalSeq, snapshot._creds);
+            _journalSeq += snapshot._changes.size();
+        } catch (VaultJournalException e) {
+            // we don't know what made it to disk, so fall back to a full write next time
+            _journalBase = null;
+            throw new VaultRepositoryException(e);
+        }
+    }
 
-            VaultFile file = new VaultFile();
-            if (isEncryptionEnabled()) {
-                file.setContent(obj, _creds);
-            } else {
-                file.setContent(obj);
-            }
+    /**
+     * Brings the copy of the vault that is written to disk up to date with the given snapshot.
+     */
+    private void apply(Snapshot snapshot) {
+        if (snapshot._vault != null) {
+            _persisted = snapshot._vault;
+        }
+        for (VaultJournal.Change change : snapshot._changes) {
+            change.apply(_persisted.getEntries());
+        }
+        _persistedCreds = snapshot._creds;
+    }
 
-            try {
-                byte[] bytes = file.toBytes();
-                writeToFile(_context, new ByteArrayInputStream(bytes));
-            } catch (IOException e) {
-                throw new VaultRepositoryException(e);
+    /**
+     * Writes the vault as of the last saved snapshot to disk in full, folding the journal back
+     * into the vault file.
+     *
+     * This is only called from the thread that VaultManager persists the vault on.
+     */
+    void compact() throws VaultRepositoryException {
+        AtomicFile file = getAtomicFile(_context);
+
+        VaultFile written;
+        FileOutputStream outStream = null;
+        try {
+            outStream = file.startWrite();
+            written = VaultFile.write(outStream, _persisted, _persistedCreds);
+            file.finishWrite(outStream);
+        } catch (IOException | VaultFileException e) {
+            if (outStream != null) {
+                file.failWrite(outStream);
             }
-        } catch (VaultFileException e) {
+            _file = null;
+            _journalBase = null;
             throw new VaultRepositoryException(e);
         }
+
+        _file = written.bind(file.getBaseFile());
+        _journal.delete();
+        _journalBase = written.isEncrypted() ? written.getHeader().getParams().getNonce() : null;
+        _journalSeq = 0;
+    }
+
+    /**
+     * Reports whether the journal contains changes that haven't been folded back into the vault
+     * file yet.
+     *
+     * This is only called from the thread that VaultManager persists the vault on.
+     */
+    boolean isCompactionNeeded() {
+        return _journalSeq > 0;
+    }
+
+    /**
+     * Returns the vault file on disk with only its header in memory, or null if it's unknown.
+     *
+     * This is only called from the thread that VaultManager persists the vault on.
+     */
+    @Nullable
+    VaultFile getFile() {
+        return _file;
     }
 
     /**
@@ -142,6 +283,10 @@ public class VaultRepository {
      * not null, it will be used to encrypt the vault first.
      */
     public void export(OutputStream stream, VaultFileCredentials creds) throws VaultRepositoryException {
+        export(_vault, stream, creds);
+    }
+
+    private static void export(Vault vault, OutputStream stream, VaultFileCredentials creds) throws VaultRepositoryException {
         if (creds != null) {
             creds = creds.exportable();
         }
@@ -149,9 +294,9 @@ public class VaultRepository {
         try {
             VaultFile vaultFile = new VaultFile();
             if (creds != null) {
-                vaultFile.setContent(_vault.toJson(), creds);
+                vaultFile.setContent(vault.toJson(), creds);
             } else {
-                vaultFile.setContent(_vault.toJson());
+                vaultFile.setContent(vault.toJson());
             }
 
             byte[] bytes = vaultFile.toBytes();
@@ -178,6 +323,7 @@ public class VaultRepository {
 
     public void addEntry(VaultEntry entry) {
         _vault.getEntries().add(entry);
+        _changes.add(VaultJournal.Change.add(entry));
     }
 
     public VaultEntry getEntryByUUID(UUID uuid) {
@@ -185,19 +331,40 @@ public class VaultRepository {
     }
 
     public VaultEntry removeEntry(VaultEntry entry) {
-        return _vault.getEntries().remove(entry);
+        VaultEntry oldEntry = _vault.getEntries().remove(entry);
+        _changes.add(VaultJournal.Change.remove(oldEntry));
+        _codes.remove(oldEntry.getUUID());
+        return oldEntry;
+    }
+
+    /**
+     * Removes the given entries from the vault. This is much faster than calling removeEntry
+     * for every entry, if there are many of them.
+     */
+    public List<VaultEntry> removeEntries(Collection<VaultEntry> entries) {
+        List<VaultEntry> oldEntries = _vault.getEntries().removeAll(entries);
+        for (VaultEntry oldEntry : oldEntries) {
+            _changes.add(VaultJournal.Change.remove(oldEntry));
+            _codes.remove(oldEntry.getUUID());
+        }
+        return oldEntries;
     }
 
     public void wipeEntries() {
         _vault.getEntries().wipe();
+        _changes.add(VaultJournal.Change.wipe());
+        _codes.clear();
     }
 
     public VaultEntry replaceEntry(VaultEntry entry) {
-        return _vault.getEntries().replace(entry);
+        VaultEntry oldEntry = _vault.getEntries().replace(entry);
+        _changes.add(VaultJournal.Change.replace(entry));
+        return oldEntry;
     }
 
     public void swapEntries(VaultEntry entry1, VaultEntry entry2) {
         _vault.getEntries().swap(entry1, entry2);
+        _changes.add(VaultJournal.Change.swap(entry1, entry2));
     }
 
     public boolean isEntryDuplicate(VaultEntry entry) {
@@ -208,6 +375,14 @@ public class VaultRepository {
         return _vault.getEntries().getValues();
     }
 
+    /**
+     * Returns the cache of the current OTP's of the entries in the vault. Anything that needs
+     * the current code of an entry should get it from here.
+     */
+    public OtpCodeCache getCodeCache() {
+        return _codes;
+    }
+
     public TreeSet<String> getGroups() {
         TreeSet<String> groups = new TreeSet<>(Collator.getInstance());
         for (VaultEntry entry : getEntries()) {
@@ -225,9 +400,66 @@ public class VaultRepository {
 
     public void setCredentials(VaultFileCredentials creds) {
         _creds = creds;
+        _fullWriteNeeded = true;
     }
 
     public boolean isEncryptionEnabled() {
         return _creds != null;
     }
+
+    /**
+     * An immutable copy of the changes made to the vault since the previous snapshot. If no
+     * changes were recorded, it holds a copy of the entire vault instead.
+     */
+    static class Snapshot {
+        private final VaultRepository _repo;
+        @Nullable
+        private final Vault _vault;
+        private final List<VaultJournal.Change> _changes;
+        private final VaultFileCredentials _creds;
+        private final boolean _fullWrite;
+
+        private Snapshot(VaultRepository repo, @Nullable Vault vault, List<VaultJournal.Change> changes, VaultFileCredentials creds, boolean fullWrite) {
+            _repo = repo;
+            _vault = vault;
+            _changes = changes;
+            _creds = creds;
+            _fullWrite = fullWrite;
+        }
+
+        /**
+         * Merges this snapshot with the given newer snapshot of the same vault, so that saving
+         * the result is equivalent to saving both snapshots in order.
+         */
+        Snapshot merge(Snapshot snapshot) {
+            if (snapshot._repo != _repo) {
+                throw new IllegalArgumentException("Snapshots belong to a different vault");
+            }
+
+            // a copy of the entire vault already includes the changes of this snapshot
+            if (snapshot._vault != null) {
+                return new Snapshot(_repo, snapshot._vault, snapshot._changes, snapshot._creds, true);
+            }
+
+            List<VaultJournal.Change> changes = new ArrayList<>(_changes);
+            changes.addAll(snapshot._changes);
+            return new Snapshot(_repo, _vault, changes, snapshot._creds, _fullWrite || snapshot._fullWrite);
+        }
+
+        VaultRepository getRepository() {
+            return _repo;
+        }
+
+        boolean isEncrypted() {
+            return _creds != null;
+        }
+
+        /**
+         * Exports the vault as of this snapshot. This is only called from the thread that
+         * VaultManager persists the vault on, right after the snapshot has been saved.
+         */
+        void export(OutputStream stream) throws VaultRepositoryException {
+            VaultRepository.export(_repo._persisted, stream, _creds);
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package com.beemdevelopment.aegis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+
+@RunWith(RobolectricTestRunner.class)
+public class UsageCountStoreTest {
+    @Test
+    public void testIncrementAndReload() {
+        Context context = ApplicationProvider.getApplicationContext();
+        UUID uuid1 = UUID.randomUUID();
+        UUID uuid2 = UUID.randomUUID();
+
+        UsageCountStore store = newStore(context);
+        store.incrementUsageCount(uuid1);
+        store.incrementUsageCount(uuid1);
+        store.incrementUsageCount(uuid2);
+        store.resetUsageCount(uuid2);
+        assertEquals(2, store.getUsageCount(uuid1));
+        assertEquals(0, store.getUsageCount(uuid2));
+        assertNotEquals(0, store.getLastUsed(uuid1));
+
+        // every change must have been written to disk
+        UsageCountStore reloaded = newStore(context);
+        assertEquals(2, reloaded.getUsageCount(uuid1));
+        assertEquals(store.getLastUsed(uuid1), reloaded.getLastUsed(uuid1));
+        assertEquals(0, reloaded.getUsageCount(uuid2));
+    }
+
+    @Test
+    public void testCompaction() {
+        Context context = ApplicationProvider.getApplicationContext();
+        UUID uuid = UUID.randomUUID();
+
+        // enough changes to the same entry to trigger a compaction
+        UsageCountStore store = newStore(context);
+        for (int i = 0; i < 200; i++) {
+            store.incrementUsageCount(uuid);
+        }
+        assertEquals(200, newStore(context).getUsageCount(uuid));
+
+        // entries that no longer exist are dropped
+        UUID removed = UUID.randomUUID();
+        store.incrementUsageCount(removed);
+        store.retain(Collections.singletonList(uuid));
+        UsageCountStore reloaded = newStore(context);
+        assertEquals(200, reloaded.getUsageCount(uuid));
+        assertEquals(0, reloaded.getUsageCount(removed));
+
+        store.clear();
+        assertEquals(0, newStore(context).getUsageCount(uuid));
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        UUID uuid = UUID.randomUUID();
+
+        UsageCountStore store = newStore(context);
+        store.incrementUsageCount(uuid);
+
+        // simulate an append that was cut short
+        File file = new File(context.getFilesDir(), "usage_counts.bin");
+        try (FileOutputStream outStream = new FileOutputStream(file, true)) {
+            outStream.write(new byte[]{1, 2, 3});
+        }
+
+        // the incomplete record is dropped, so that the next append ends up right after the last complete one
+        store = newStore(context);
+        assertEquals(1, store.getUsageCount(uuid));
+        store.incrementUsageCount(uuid);
+        assertEquals(2, newStore(context).getUsageCount(uuid));
+    }
+
+    @Test
+    public void testMigration() throws JSONException {
+        Context context = ApplicationProvider.getApplicationContext();
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        UUID uuid = UUID.randomUUID();
+
+        JSONObject obj = new JSONObject();
+        obj.put("uuid", uuid.toString());
+        obj.put("count", 5);
+        sharedPrefs.edit().putString("pref_usage_count", new JSONArray().put(obj).toString()).commit();
+
+        assertEquals(5, newStore(context).getUsageCount(uuid));
+        assertEquals(0, new Preferences(context).getUsageCounts().size());
+        assertEquals(5, newStore(context).getUsageCount(uuid));
+    }
+
+    private static UsageCountStore newStore(Context context) {
+        // write to disk on the calling thread, so that the changes are visible right away
+        return new UsageCountStore(context, Runnable::run);
+    }
+}
@@ -0,0 +1,58 @@
+package com.beemdevelopment.aegis.crypto.otp;
+
+import org.junit.Test;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OtpFormatterTest {
+    @Test
+    public void vectorsMatch() throws InvalidKeyException, NoSuchAlgorithmException {
+        OtpFormatter formatter = new OtpFormatter();
+        OtpGenerator generator = new OtpGenerator(HOTPTest.SECRET, "HmacSHA1");
+        for (int i = 0; i < HOTPTest.VECTORS.length; i++) {
+            assertTrue(formatter.setDigits(generator.generateCode(i), 6, 0));
+            assertEquals(HOTPTest.VECTORS[i], toString(formatter));
+        }
+    }
+
+    @Test
+    public void groupsMatch() {
+        OtpFormatter formatter = new OtpFormatter();
+        assertTrue(formatter.setDigits(1234567, 7, 3));
+        assertEquals("123 456 7", toString(formatter));
+        assertTrue(formatter.setDigits(123456, 6, 3));
+        assertEquals("123 456", toString(formatter));
+        assertTrue(formatter.setDigits(123456, 6, 6));
+        assertEquals("123456", toString(formatter));
+        assertTrue(formatter.setHidden('*', 8, 4));
+        assertEquals("**** ****", toString(formatter));
+    }
+
+    @Test
+    public void reportsChanges() {
+        OtpFormatter formatter = new OtpFormatter();
+        assertTrue(formatter.setDigits(123456, 6, 3));
+        char[] chars = formatter.getChars();
+
+        // an unchanged code must leave the displayed array alone
+        assertFalse(formatter.setDigits(123456, 6, 3));
+        assertEquals(chars, formatter.getChars());
+
+        // a changed code must not be written into the displayed array
+        assertTrue(formatter.setDigits(654321, 6, 3));
+        assertEquals("123 456", new String(chars, 0, 7));
+        assertEquals("654 321", toString(formatter));
+
+        formatter.reset();
+        assertTrue(formatter.setDigits(654321, 6, 3));
+    }
+
+    private static String toString(OtpFormatter formatter) {
+        return new String(formatter.getChars(), 0, formatter.getLength());
+    }
+}
@@ -14,7 +14,7 @@ import java.security.NoSuchAlgorithmException;
 
 public class YAOTPTest {
 
-    private static final Vector[] TEST_CASES = new Vector[]{
+    public static final Vector[] TEST_CASES = new Vector[]{
             new Vector("5239", "6SB2IKNM6OBZPAVBVTOHDKS4FAAAAAAADFUTQMBTRY", 1641559648L, "umozdicq"),
             new Vector("7586", "LA2V6KMCGYMWWVEW64RNP3JA3IAAAAAAHTSG4HRZPI", 1581064020L, "oactmacq"),
             new Vector("7586", "LA2V6KMCGYMWWVEW64RNP3JA3IAAAAAAHTSG4HRZPI", 1581090810L, "wemdwrix"),
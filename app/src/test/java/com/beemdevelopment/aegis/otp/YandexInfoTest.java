@@ -1,7 +1,9 @@
 package com.beemdevelopment.aegis.otp;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
+import com.beemdevelopment.aegis.crypto.otp.YAOTPTest;
 import com.beemdevelopment.aegis.encoding.Base32;
 import com.beemdevelopment.aegis.encoding.EncodingException;
 
@@ -27,6 +29,25 @@ public class YandexInfoTest {
         assertThrows(OtpInfoException.class, () -> YandexInfo.validateSecret(getBase32Vector(3)));
     }
 
+    @Test
+    public void testYandexOtp() throws EncodingException, OtpInfoException {
+        for (YAOTPTest.Vector vector : YAOTPTest.TEST_CASES) {
+            YandexInfo info = new YandexInfo(Base32.decode(vector.secret), vector.pin);
+            assertEquals(vector.expected, info.getOtp(vector.timestamp));
+        }
+    }
+
+    @Test
+    public void testYandexOtpPinChange() throws EncodingException, OtpInfoException {
+        YAOTPTest.Vector vector = YAOTPTest.TEST_CASES[0];
+        YandexInfo info = new YandexInfo(Base32.decode(vector.secret), "0000");
+        info.getOtp(vector.timestamp);
+
+        // the derived key must not outlive the PIN it was derived from
+        info.setPin(vector.pin);
+        assertEquals(vector.expected, info.getOtp(vector.timestamp));
+    }
+
     private byte[] getBase32Vector(int vectorIndex) throws EncodingException {
         return Base32.decode(vectors[vectorIndex]);
     }
@@ -0,0 +1,91 @@
+package com.beemdevelopment.aegis.ui.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.beemdevelopment.aegis.otp.OtpInfoException;
+import com.beemdevelopment.aegis.otp.TotpInfo;
+import com.beemdevelopment.aegis.vault.VaultEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntrySearchIndexTest {
+    private List<VaultEntry> _entries;
+    private EntrySearchIndex _index;
+
+    @Before
+    public void init() throws OtpInfoException {
+        _entries = new ArrayList<>();
+        _entries.add(newEntry("Éric", "GitHub"));
+        _entries.add(newEntry("alice", "Gitea"));
+        _entries.add(newEntry("bob", "Google"));
+
+        _index = new EntrySearchIndex(new EntrySearchIndex.Listener() {
+            @Override
+            public List<VaultEntry> getSearchCandidates() {
+                return _entries;
+            }
+
+            @Override
+            public void onSearchResult(List<VaultEntry> entries) {
+
+            }
+        });
+        for (VaultEntry entry : _entries) {
+            _index.add(entry);
+        }
+    }
+
+    @After
+    public void destroy() {
+        _index.destroy();
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("eric", EntrySearchIndex.normalize("Éric"));
+        assertEquals("creme brulee", EntrySearchIndex.normalize("Crème Brûlée"));
+    }
+
+    @Test
+    public void testSearch() {
+        assertEquals(_entries, _index.search(null));
+        assertEquals(Arrays.asList(_entries.get(0), _entries.get(1)), _index.search(EntrySearchIndex.normalize("Git")));
+
+        // narrowed down from the previous result
+        assertEquals(Arrays.asList(_entries.get(0)), _index.search(EntrySearchIndex.normalize("GitH")));
+
+        // not an extension of the previous query, so every candidate is searched again
+        assertEquals(Arrays.asList(_entries.get(2)), _index.search(EntrySearchIndex.normalize("go")));
+
+        // the issuer and the name are matched separately
+        assertEquals(Arrays.asList(_entries.get(0)), _index.search(EntrySearchIndex.normalize("eric")));
+        assertEquals(0, _index.search(EntrySearchIndex.normalize("ericgit")).size());
+    }
+
+    @Test
+    public void testCandidatesChange() throws OtpInfoException {
+        assertEquals(Arrays.asList(_entries.get(2)), _index.search("go"));
+
+        VaultEntry entry = newEntry("carol", "Gogs");
+        _entries.add(entry);
+        _index.add(entry);
+        assertTrue(_index.matches(entry, "gog"));
+        assertFalse(_index.matches(entry, "git"));
+        assertEquals(Arrays.asList(_entries.get(2), entry), _index.search("go"));
+    }
+
+    private static VaultEntry newEntry(String name, String issuer) throws OtpInfoException {
+        return new VaultEntry(new TotpInfo(new byte[]{0x01, 0x02, 0x03, 0x04, 0x05}), name, issuer);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -55,6 +56,30 @@ public class UUIDMapTest {
         assertFalse(_map.has(value2));
     }
 
+    @Test
+    public void removeValues() {
+        Value value1 = addNewValue();
+        Value value2 = addNewValue();
+        Value value3 = addNewValue();
+        Value value4 = addNewValue();
+        Value value5 = addNewValue();
+
+        // remove values from the middle, including a clone and a duplicate
+        List<Value> oldValues = _map.removeAll(Arrays.asList(value4, Cloner.clone(value2), value4));
+        assertArrayEquals(new Value[]{value4, value2}, oldValues.toArray());
+        assertArrayEquals(new Value[]{value1, value3, value5}, _map.getValues().toArray());
+
+        // the positions of the values after the removed ones must still be correct
+        _map.swap(value1, value5);
+        assertArrayEquals(new Value[]{value5, value3, value1}, _map.getValues().toArray());
+        _map.move(value1, 1);
+        assertArrayEquals(new Value[]{value5, value1, value3}, _map.getValues().toArray());
+
+        // nothing is removed if one of the values doesn't exist
+        assertThrows(AssertionError.class, () -> _map.removeAll(Arrays.asList(value1, value2)));
+        assertTrue(_map.has(value1));
+    }
+
     @Test
     public void replaceValue() {
         Value value = addNewValue();
@@ -93,6 +118,47 @@ public class UUIDMapTest {
         assertArrayEquals(values.toArray(), ref.toArray());
     }
 
+    @Test
+    public void moveValue() {
+        Collection<Value> values = _map.getValues();
+        Value value1 = addNewValue();
+        Value value2 = addNewValue();
+        Value value3 = addNewValue();
+        Value value4 = addNewValue();
+
+        // move a value down and then back up again
+        _map.move(value1, 2);
+        assertArrayEquals(new Value[]{value2, value3, value1, value4}, values.toArray());
+        _map.move(value1, 0);
+        assertArrayEquals(new Value[]{value1, value2, value3, value4}, values.toArray());
+
+        // the positions must still be correct after a swap and a removal
+        _map.swap(value1, value4);
+        _map.remove(value2);
+        _map.move(value4, 2);
+        assertArrayEquals(new Value[]{value3, value1, value4}, values.toArray());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> _map.move(value1, 3));
+        assertThrows(AssertionError.class, () -> _map.move(value2, 0));
+    }
+
+    @Test
+    public void orderAfterRemoval() {
+        Value value1 = addNewValue();
+        Value value2 = addNewValue();
+        Value value3 = addNewValue();
+
+        _map.remove(value2);
+        _map.swap(value1, value3);
+        _map.add(value2);
+        assertArrayEquals(new Value[]{value3, value1, value2}, _map.getValues().toArray());
+
+        // the order must survive a round trip through serialization
+        UUIDMap<Value> clone = Cloner.clone(_map);
+        clone.swap(value2, value3);
+        assertArrayEquals(new Value[]{value2, value1, value3}, clone.getValues().toArray());
+    }
+
     private Value addNewValue() {
         Value value = new Value();
         assertFalse(_map.has(value));
@@ -0,0 +1,76 @@
+package com.beemdevelopment.aegis.vault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.beemdevelopment.aegis.crypto.otp.HOTPTest;
+import com.beemdevelopment.aegis.otp.HotpInfo;
+import com.beemdevelopment.aegis.otp.OtpInfoException;
+import com.beemdevelopment.aegis.otp.TotpInfo;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class OtpCodeCacheTest {
+    @Test
+    public void testHotpCounter() throws OtpInfoException {
+        OtpCodeCache cache = new OtpCodeCache();
+        HotpInfo info = new HotpInfo(HOTPTest.SECRET);
+        VaultEntry entry = new VaultEntry(info);
+
+        for (int i = 0; i < HOTPTest.VECTORS.length; i++) {
+            assertEquals(HOTPTest.VECTORS[i], cache.getOtp(entry));
+            assertEquals(HOTPTest.VECTORS[i], cache.getOtp(entry));
+            info.incrementCounter();
+        }
+    }
+
+    @Test
+    public void testTimeStep() throws OtpInfoException {
+        OtpCodeCache cache = new OtpCodeCache();
+        TotpInfo info = new TotpInfo(HOTPTest.SECRET, "SHA1", 8, 30);
+        VaultEntry entry = new VaultEntry(info);
+
+        long millis = 59_000;
+        assertEquals(info.generateCode(1), cache.getCode(entry, millis));
+        assertEquals(info.generateCode(1), cache.getCode(entry, millis + 999));
+        assertEquals(info.generateCode(2), cache.getCode(entry, millis + 1000));
+    }
+
+    @Test
+    public void testReplacedInfo() throws OtpInfoException {
+        OtpCodeCache cache = new OtpCodeCache();
+        VaultEntry entry = new VaultEntry(new HotpInfo(HOTPTest.SECRET));
+        long code = cache.getCode(entry, 0);
+
+        // a different OtpInfo with the same counter must not get the cached code
+        entry.setInfo(new HotpInfo(new byte[]{0x01, 0x02, 0x03, 0x04, 0x05}));
+        assertNotEquals(code, cache.getCode(entry, 0));
+        assertEquals(entry.getInfo().generateCode(0), cache.getCode(entry, 0));
+    }
+
+    @Test
+    public void testPrefetch() throws OtpInfoException {
+        OtpCodeCache cache = new OtpCodeCache();
+        TotpInfo info = new TotpInfo(HOTPTest.SECRET, "SHA1", 6, 30);
+        VaultEntry entry = new VaultEntry(info);
+        List<VaultEntry> entries = Collections.singletonList(entry);
+
+        // too early to prefetch, so the delay is until the start of the lookahead window
+        assertEquals(20_000, cache.prefetch(entries, 5_000, 5_000));
+        // within the lookahead window, so the delay is until the start of the next one
+        assertEquals(30_000, cache.prefetch(entries, 25_000, 5_000));
+
+        assertEquals(info.generateCode(0), cache.getCode(entry, 29_999));
+        assertEquals(info.generateCode(1), cache.getCode(entry, 30_000));
+
+        // entries that aren't time-based are skipped
+        VaultEntry hotp = new VaultEntry(new HotpInfo(HOTPTest.SECRET));
+        assertEquals(-1, cache.prefetch(Collections.singletonList(hotp), 25_000, 5_000));
+
+        cache.close();
+        assertEquals(-1, cache.prefetch(entries, 25_000, 5_000));
+    }
+}
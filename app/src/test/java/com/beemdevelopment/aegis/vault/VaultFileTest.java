@@ -0,0 +1,174 @@
+package com.beemdevelopment.aegis.vault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.beemdevelopment.aegis.icons.IconType;
+import com.beemdevelopment.aegis.util.IOUtils;
+import com.beemdevelopment.aegis.vectors.VaultEntries;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class VaultFileTest {
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private Vault _vault;
+
+    @Before
+    public void init() {
+        _vault = new Vault();
+        for (VaultEntry entry : VaultEntries.get()) {
+            _vault.getEntries().add(entry);
+        }
+        _vault.getEntries().getValues().iterator().next().setNote("Note");
+    }
+
+    @Test
+    public void testWritePlain() throws IOException, VaultFileException, VaultException, JSONException {
+        VaultFile file = writeAndRead(null);
+        assertFalse(file.isEncrypted());
+        assertEquals(1, file.toJson().getInt("version"));
+        checkVault(file.getContent());
+    }
+
+    @Test
+    public void testWriteEncrypted() throws IOException, VaultFileException, VaultException, JSONException {
+        VaultFileCredentials creds = new VaultFileCredentials();
+        VaultFile file = writeAndRead(creds);
+        assertTrue(file.isEncrypted());
+        assertEquals(VaultFile.VERSION, file.toJson().getInt("version"));
+        checkVault(file.getContent(creds));
+    }
+
+    @Test
+    public void testWriteEncryptedSealed() throws IOException, VaultFileException {
+        VaultFileCredentials creds = new VaultFileCredentials();
+        VaultFile file = writeAndRead(creds, true);
+        checkVault(file.getVault(creds));
+
+        // payloads that were never opened are written back to disk as-is
+        _vault = file.getVault(creds);
+        file = writeAndRead(creds, true);
+        checkVault(file.getVault(creds));
+    }
+
+    @Test
+    public void testMigrateJsonPayloads() throws IOException, VaultFileException, VaultException, JSONException {
+        VaultFileCredentials creds = new VaultFileCredentials();
+        VaultFile file = writeAndRead(creds, false);
+        assertEquals(2, file.toJson().getInt("version"));
+        checkVault(file.getContent(creds));
+
+        _vault = file.getVault(creds);
+        file = writeAndRead(creds, true);
+        assertEquals(VaultFile.VERSION, file.toJson().getInt("version"));
+        checkVault(file.getContent(creds));
+    }
+
+    @Test
+    public void testIconTable() throws IOException, VaultFileException, JSONException {
+        byte[] icon = new byte[]{1, 2, 3, 4};
+        Iterator<VaultEntry> iter = _vault.getEntries().getValues().iterator();
+        iter.next().setIcon(icon, IconType.PNG);
+        iter.next().setIcon(icon.clone(), IconType.PNG);
+
+        VaultFileCredentials creds = new VaultFileCredentials();
+        VaultFile file = writeAndRead(creds, true);
+        assertEquals(1, file.toJson().getJSONObject("icons").length());
+
+        Vault vault = file.getVault(creds);
+        checkVault(vault);
+
+        iter = vault.getEntries().getValues().iterator();
+        assertSame(iter.next().getIcon(), iter.next().getIcon());
+    }
+
+    @Test
+    public void testIconTableMixedOrigins() throws IOException, VaultFileException, VaultEntryException, JSONException {
+        byte[] icon = new byte[]{1, 2, 3, 4};
+        Iterator<VaultEntry> iter = _vault.getEntries().getValues().iterator();
+        VaultEntry entry1 = iter.next();
+        iter.next().setIcon(icon.clone(), IconType.PNG);
+
+        // an icon that's read from JSON is only decoded when it's written to the icon table
+        entry1.setIcon(icon, IconType.PNG);
+        VaultEntry parsed = VaultEntry.fromJson(entry1.toJson());
+        _vault.getEntries().replace(parsed);
+        assertTrue(VaultEntryIcon.contentsEqual(parsed.getIcon(), entry1.getIcon()));
+
+        VaultFileCredentials creds = new VaultFileCredentials();
+        VaultFile file = writeAndRead(creds, true);
+        assertEquals(1, file.toJson().getJSONObject("icons").length());
+        checkVault(file.getVault(creds));
+    }
+
+    @Test
+    public void testReadHeader() throws IOException, VaultFileException, VaultException, JSONException {
+        VaultFileCredentials creds = new VaultFileCredentials();
+        File file = _folder.newFile();
+        VaultFile written;
+        try (FileOutputStream outStream = new FileOutputStream(file)) {
+            written = VaultFile.write(outStream, _vault, creds);
+        }
+
+        // the layout recorded while writing the vault file matches the one found by scanning it
+        checkVault(written.bind(file).getVault(creds));
+        try (FileInputStream inStream = new FileInputStream(file)) {
+            VaultFile vaultFile = VaultFile.readHeader(inStream, file);
+            assertTrue(vaultFile.isEncrypted());
+            checkVault(vaultFile.getVault(creds));
+        }
+
+        // the order of the fields and the formatting don't matter
+        File reordered = _folder.newFile();
+        try (FileInputStream inStream = new FileInputStream(file); FileOutputStream outStream = new FileOutputStream(reordered)) {
+            JSONObject obj = VaultFile.fromBytes(IOUtils.readFile(inStream)).toJson();
+            outStream.write(obj.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        try (FileInputStream inStream = new FileInputStream(reordered)) {
+            checkVault(VaultFile.readHeader(inStream, reordered).getContent(creds));
+        }
+    }
+
+    private VaultFile writeAndRead(VaultFileCredentials creds) throws IOException, VaultFileException {
+        return writeAndRead(creds, true);
+    }
+
+    private VaultFile writeAndRead(VaultFileCredentials creds, boolean binary) throws IOException, VaultFileException {
+        File file = _folder.newFile();
+        try (FileOutputStream outStream = new FileOutputStream(file)) {
+            VaultFile.write(outStream, _vault, creds, binary);
+        }
+
+        try (FileInputStream inStream = new FileInputStream(file)) {
+            return VaultFile.fromBytes(IOUtils.readFile(inStream));
+        }
+    }
+
+    private void checkVault(JSONObject obj) throws VaultException {
+        checkVault(Vault.fromJson(obj));
+    }
+
+    private void checkVault(Vault vault) {
+        List<VaultEntry> expected = new ArrayList<>(_vault.getEntries().getValues());
+        List<VaultEntry> actual = new ArrayList<>(vault.getEntries().getValues());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,118 @@
+package com.beemdevelopment.aegis.vault;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+import com.beemdevelopment.aegis.util.UUIDMap;
+import com.beemdevelopment.aegis.vectors.VaultEntries;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class VaultJournalTest {
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private File _file;
+    private VaultJournal _journal;
+    private VaultFileCredentials _creds;
+    private byte[] _base;
+    private List<VaultEntry> _entries;
+
+    @Before
+    public void init() throws IOException {
+        _file = new File(_folder.getRoot(), VaultJournal.FILENAME);
+        _journal = new VaultJournal(_file);
+        _creds = new VaultFileCredentials();
+        _base = CryptoUtils.generateRandomBytes(CryptoUtils.CRYPTO_AEAD_NONCE_SIZE);
+        _entries = VaultEntries.get();
+    }
+
+    @Test
+    public void testReplay() throws VaultJournalException {
+        _journal.append(Arrays.asList(
+                VaultJournal.Change.add(_entries.get(0)),
+                VaultJournal.Change.add(_entries.get(1)),
+                VaultJournal.Change.add(_entries.get(2))
+        ), _base, 0, _creds);
+
+        _entries.get(1).setName("Renamed");
+        _journal.append(Arrays.asList(
+                VaultJournal.Change.replace(_entries.get(1)),
+                VaultJournal.Change.swap(_entries.get(0), _entries.get(2)),
+                VaultJournal.Change.add(_entries.get(3)),
+                VaultJournal.Change.remove(_entries.get(3))
+        ), _base, 3, _creds);
+
+        UUIDMap<VaultEntry> actual = new UUIDMap<>();
+        for (JSONObject change : _journal.read(_base, _creds)) {
+            VaultJournal.apply(actual, change);
+        }
+
+        List<VaultEntry> expectedValues = Arrays.asList(_entries.get(2), _entries.get(1), _entries.get(0));
+        assertArrayEquals(expectedValues.toArray(), actual.getValues().toArray());
+        assertEquals("Renamed", actual.getByUUID(_entries.get(1).getUUID()).getName());
+    }
+
+    @Test
+    public void testTornRecordIgnored() throws VaultJournalException, IOException, JSONException {
+        _journal.append(Arrays.asList(
+                VaultJournal.Change.add(_entries.get(0)),
+                VaultJournal.Change.add(_entries.get(1))
+        ), _base, 0, _creds);
+
+        try (RandomAccessFile file = new RandomAccessFile(_file, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        assertEquals(1, _journal.read(_base, _creds).size());
+
+        // the torn record must not get in the way of the next append
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(2))), _base, 1, _creds);
+        List<JSONObject> changes = _journal.read(_base, _creds);
+        assertEquals(2, changes.size());
+        assertEquals(_entries.get(2).getUUID().toString(), changes.get(1).getJSONObject("entry").getString("uuid"));
+    }
+
+    @Test
+    public void testOtherBaseIgnored() throws VaultJournalException, JSONException {
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(0))), _base, 0, _creds);
+
+        byte[] otherBase = CryptoUtils.generateRandomBytes(CryptoUtils.CRYPTO_AEAD_NONCE_SIZE);
+        assertTrue(_journal.read(otherBase, _creds).isEmpty());
+
+        // the records of the other vault file must not hide the ones appended for this one
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(1))), otherBase, 0, _creds);
+        List<JSONObject> changes = _journal.read(otherBase, _creds);
+        assertEquals(1, changes.size());
+        assertEquals(_entries.get(1).getUUID().toString(), changes.get(0).getJSONObject("entry").getString("uuid"));
+    }
+
+    @Test
+    public void testSequenceGap() throws VaultJournalException {
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(0))), _base, 0, _creds);
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(1))), _base, 2, _creds);
+
+        assertThrows(VaultJournalException.class, () -> _journal.read(_base, _creds));
+    }
+
+    @Test
+    public void testWrongKey() throws VaultJournalException {
+        _journal.append(Arrays.asList(VaultJournal.Change.add(_entries.get(0))), _base, 0, _creds);
+
+        assertThrows(VaultJournalException.class, () -> _journal.read(_base, new VaultFileCredentials()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.beemdevelopment.aegis.vault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.beemdevelopment.aegis.vectors.VaultEntries;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class VaultRepositorySaveTest {
+    private Context _context;
+    private VaultJournal _journal;
+    private VaultRepository _repo;
+    private List<VaultEntry> _entries;
+
+    @Before
+    public void init() throws VaultRepositoryException {
+        _context = ApplicationProvider.getApplicationContext();
+        _journal = VaultJournal.get(_context);
+        _entries = VaultEntries.get();
+
+        // write the vault to disk in full, so that later changes can be appended to the journal
+        _repo = new VaultRepository(_context, new Vault(), new VaultFileCredentials());
+        _repo.save(_repo.snapshot(true));
+    }
+
+    @Test
+    public void testChangesJournaled() throws VaultRepositoryException {
+        _repo.addEntry(_entries.get(0));
+        _repo.save(_repo.snapshot(false));
+        assertNotEquals(0, _journal.getLength());
+    }
+
+    @Test
+    public void testTrackedChangesWrittenInFull() throws VaultRepositoryException {
+        _repo.addEntry(_entries.get(0));
+        _repo.save(_repo.snapshot(false));
+        _repo.addEntry(_entries.get(1));
+        _repo.swapEntries(_entries.get(0), _entries.get(1));
+        VaultRepository.Snapshot snapshot = _repo.snapshot(true);
+
+        // changes made after the snapshot was taken shouldn't end up on disk
+        _repo.removeEntry(_entries.get(0));
+
+        _repo.save(snapshot);
+        assertEquals(0, _journal.getLength());
+
+        VaultRepository repo = VaultRepository.fromFile(_context, VaultRepository.readVaultFile(_context), _repo.getCredentials());
+        List<VaultEntry> entries = new ArrayList<>(repo.getEntries());
+        assertEquals(2, entries.size());
+        assertEquals(_entries.get(1).getUUID(), entries.get(0).getUUID());
+        assertEquals(_entries.get(0).getUUID(), entries.get(1).getUUID());
+    }
+
+    @Test
+    public void testMergedUntrackedChangeWrittenInFull() throws VaultRepositoryException {
+        // in-place changes, like slot edits, aren't recorded
+        VaultRepository.Snapshot untracked = _repo.snapshot(false);
+
+        _repo.addEntry(_entries.get(0));
+        VaultRepository.Snapshot tracked = _repo.snapshot(false);
+
+        _repo.save(untracked.merge(tracked));
+        assertEquals(0, _journal.getLength());
+
+        VaultRepository repo = VaultRepository.fromFile(_context, VaultRepository.readVaultFile(_context), _repo.getCredentials());
+        assertEquals(1, repo.getEntries().size());
+    }
+}
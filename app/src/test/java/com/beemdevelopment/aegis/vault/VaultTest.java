@@ -0,0 +1,91 @@
+package com.beemdevelopment.aegis.vault;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.beemdevelopment.aegis.VaultProtos;
+import com.beemdevelopment.aegis.crypto.MasterKey;
+import com.beemdevelopment.aegis.vectors.VaultEntries;
+import com.google.protobuf.CodedOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class VaultTest {
+    private static final int ENTRY_COUNT = Vault.PARALLEL_THRESHOLD * 4;
+
+    private Vault _vault;
+
+    @Before
+    public void init() {
+        _vault = new Vault();
+        List<VaultEntry> vectors = VaultEntries.get();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            VaultEntry vector = vectors.get(i % vectors.size());
+            _vault.getEntries().add(new VaultEntry(vector.getInfo(), vector.getName() + i, vector.getIssuer()));
+        }
+    }
+
+    @Test
+    public void testParallelFromJson() throws VaultException {
+        JSONObject obj = _vault.toJson();
+        Vault sequential = Vault.fromJson(obj, null, Integer.MAX_VALUE);
+        Vault parallel = Vault.fromJson(obj, null, 0);
+
+        List<VaultEntry> expected = new ArrayList<>(_vault.getEntries().getValues());
+        assertEquals(expected, new ArrayList<>(sequential.getEntries().getValues()));
+        assertEquals(expected, new ArrayList<>(parallel.getEntries().getValues()));
+    }
+
+    @Test
+    public void testParallelFromIndexProto() throws VaultException, IOException {
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        CodedOutputStream codedStream = CodedOutputStream.newInstance(outStream);
+        _vault.writeIndexProto(codedStream, new HashMap<>(), new HashMap<>());
+        codedStream.flush();
+
+        VaultProtos.Vault proto = VaultProtos.Vault.parseFrom(outStream.toByteArray());
+        MasterKey key = new VaultFileCredentials().getKey();
+        Vault sequential = Vault.fromIndexProto(proto, new JSONObject(), new JSONObject(), key, Integer.MAX_VALUE);
+        Vault parallel = Vault.fromIndexProto(proto, new JSONObject(), new JSONObject(), key, 0);
+
+        List<VaultEntry> expected = new ArrayList<>(_vault.getEntries().getValues());
+        assertEquals(expected, new ArrayList<>(sequential.getEntries().getValues()));
+        assertEquals(expected, new ArrayList<>(parallel.getEntries().getValues()));
+    }
+
+    @Test
+    public void testParallelFromJsonFirstError() throws JSONException {
+        JSONObject obj = _vault.toJson();
+        JSONArray array = obj.getJSONArray("entries");
+        array.getJSONObject(ENTRY_COUNT - 1).remove("issuer");
+        array.getJSONObject(ENTRY_COUNT / 2).remove("name");
+
+        // the error of the first entry that fails to parse is reported, regardless of which thread parses it
+        String expected = getErrorMessage(obj, Integer.MAX_VALUE);
+        assertNotNull(expected);
+        assertTrue(expected.contains("name"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected, getErrorMessage(obj, 0));
+        }
+    }
+
+    private static String getErrorMessage(JSONObject obj, int parallelThreshold) {
+        try {
+            Vault.fromJson(obj, null, parallelThreshold);
+            return null;
+        } catch (VaultException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.beemdevelopment.aegis;
+
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+import com.beemdevelopment.aegis.otp.HotpInfo;
+import com.beemdevelopment.aegis.otp.OtpInfo;
+import com.beemdevelopment.aegis.otp.OtpInfoException;
+import com.beemdevelopment.aegis.otp.TotpInfo;
+import com.beemdevelopment.aegis.vault.Vault;
+import com.beemdevelopment.aegis.vault.VaultEntry;
+
+/**
+ * Synthetic data for the benchmarks. The mix of entries is loosely based on what a typical
+ * vault looks like: mostly TOTP entries with the default parameters, a few HOTP entries and
+ * some entries with a note.
+ */
+public class Fixtures {
+    private Fixtures() {
+
+    }
+
+    public static Vault createVault(int entries) {
+        Vault vault = new Vault();
+        for (int i = 0; i < entries; i++) {
+            vault.getEntries().add(createEntry(i));
+        }
+        return vault;
+    }
+
+    public static VaultEntry createEntry(int i) {
+        try {
+            byte[] secret = CryptoUtils.generateRandomBytes(20);
+            OtpInfo info = i % 10 == 9 ? new HotpInfo(secret, "SHA1", 6, i) : new TotpInfo(secret);
+            VaultEntry entry = new VaultEntry(info, String.format("user%d@example.com", i), String.format("Issuer %d", i % 50));
+            if (i % 4 == 0) {
+                entry.setNote(String.format("Recovery codes for account %d", i));
+            }
+            return entry;
+        } catch (OtpInfoException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
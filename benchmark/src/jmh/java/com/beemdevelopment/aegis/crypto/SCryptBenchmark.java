@@ -0,0 +1,39 @@
+package com.beemdevelopment.aegis.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Measures deriving a key from a password with the parameters that new password slots use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SCryptBenchmark {
+    private final char[] _password = "correct horse battery staple".toCharArray();
+    private SCryptParameters _params;
+
+    @Setup
+    public void setup() {
+        _params = new SCryptParameters(
+                CryptoUtils.CRYPTO_SCRYPT_N,
+                CryptoUtils.CRYPTO_SCRYPT_r,
+                CryptoUtils.CRYPTO_SCRYPT_p,
+                CryptoUtils.generateSalt()
+        );
+    }
+
+    @Benchmark
+    public SecretKey deriveKey() {
+        return CryptoUtils.deriveKey(_password, _params);
+    }
+}
@@ -0,0 +1,69 @@
+package com.beemdevelopment.aegis.crypto.otp;
+
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OtpBenchmark {
+    @Param({"SHA1", "SHA256", "SHA512"})
+    public String algo;
+
+    private byte[] _secret;
+    private OtpGenerator _generator;
+    private final OtpFormatter _formatter = new OtpFormatter();
+    private long _counter;
+
+    @Setup
+    public void setup() throws InvalidKeyException, NoSuchAlgorithmException {
+        _secret = CryptoUtils.generateRandomBytes(20);
+        _generator = new OtpGenerator(_secret, "Hmac" + algo);
+    }
+
+    @Benchmark
+    public String hotp() throws InvalidKeyException, NoSuchAlgorithmException {
+        return HOTP.generateOTP(_secret, "Hmac" + algo, 6, _counter++).toString();
+    }
+
+    @Benchmark
+    public String totp() throws InvalidKeyException, NoSuchAlgorithmException {
+        return TOTP.generateOTP(_secret, "Hmac" + algo, 6, 30).toString();
+    }
+
+    /**
+     * Like hotp, but with a Mac that was initialized with the secret beforehand, which is
+     * what OtpInfo does.
+     */
+    @Benchmark
+    public String hotpPreKeyed() {
+        return _generator.generateOTP(6, _counter++).toString();
+    }
+
+    @Benchmark
+    public String totpPreKeyed() {
+        return _generator.generateOTP(6, 30, System.currentTimeMillis() / 1000).toString();
+    }
+
+    /**
+     * What EntryHolder does on every tick: render the current code into a reusable char array,
+     * split into groups.
+     */
+    @Benchmark
+    public boolean totpFormatted() {
+        long counter = TOTP.getCounter(30, System.currentTimeMillis() / 1000);
+        return _formatter.setDigits(_generator.generateCode(counter), 6, 3);
+    }
+}
@@ -0,0 +1,50 @@
+package com.beemdevelopment.aegis.crypto.otp;
+
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class YandexBenchmark {
+    private static final String ALGO = "HmacSHA256";
+    private static final String PIN = "5239";
+
+    private byte[] _secret;
+    private OtpGenerator _generator;
+    private long _counter;
+
+    @Setup
+    public void setup() throws InvalidKeyException, NoSuchAlgorithmException {
+        _secret = CryptoUtils.generateRandomBytes(16);
+        _generator = YAOTP.createGenerator(_secret, PIN, ALGO);
+    }
+
+    /**
+     * Derives the key from the PIN and the secret for every code.
+     */
+    @Benchmark
+    public long yaotp() throws InvalidKeyException, NoSuchAlgorithmException {
+        return YAOTP.generateCode(_secret, PIN, ALGO, _counter++);
+    }
+
+    /**
+     * Like yaotp, but with a Mac that was initialized with the derived key beforehand, which is
+     * what YandexInfo does.
+     */
+    @Benchmark
+    public long yaotpPreKeyed() {
+        return _generator.generateCode(_counter++);
+    }
+}
@@ -0,0 +1,68 @@
+package com.beemdevelopment.aegis.encoding;
+
+import com.beemdevelopment.aegis.crypto.CryptoUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sizes correspond to a typical OTP secret and a typical icon.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+    @Param({"20", "16384"})
+    public int size;
+
+    private byte[] _data;
+    private String _base32;
+    private String _base64;
+    private String _hex;
+
+    @Setup
+    public void setup() {
+        _data = CryptoUtils.generateRandomBytes(size);
+        _base32 = Base32.encode(_data);
+        _base64 = Base64.encode(_data);
+        _hex = Hex.encode(_data);
+    }
+
+    @Benchmark
+    public String base32Encode() {
+        return Base32.encode(_data);
+    }
+
+    @Benchmark
+    public byte[] base32Decode() throws EncodingException {
+        return Base32.decode(_base32);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return Base64.encode(_data);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() throws EncodingException {
+        return Base64.decode(_base64);
+    }
+
+    @Benchmark
+    public String hexEncode() {
+        return Hex.encode(_data);
+    }
+
+    @Benchmark
+    public byte[] hexDecode() throws EncodingException {
+        return Hex.decode(_hex);
+    }
+}
@@ -0,0 +1,46 @@
+package com.beemdevelopment.aegis.util;
+
+import com.beemdevelopment.aegis.Fixtures;
+import com.beemdevelopment.aegis.vault.VaultEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UUIDMapBenchmark {
+    @Param({"10", "500", "5000"})
+    public int entries;
+
+    private UUIDMap<VaultEntry> _map;
+    private VaultEntry _first;
+    private VaultEntry _last;
+
+    @Setup
+    public void setup() {
+        _map = Fixtures.createVault(entries).getEntries();
+        _first = _map.getValues().iterator().next();
+        for (VaultEntry entry : _map) {
+            _last = entry;
+        }
+    }
+
+    /**
+     * Swaps the first and the last entry, which is the worst case. Every invocation undoes
+     * the previous one, so the state of the map alternates between two equivalent states.
+     */
+    @Benchmark
+    public UUIDMap<VaultEntry> swap() {
+        _map.swap(_first, _last);
+        return _map;
+    }
+}
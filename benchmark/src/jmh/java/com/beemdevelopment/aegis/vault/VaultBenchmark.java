@@ -0,0 +1,42 @@
+package com.beemdevelopment.aegis.vault;
+
+import com.beemdevelopment.aegis.Fixtures;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VaultBenchmark {
+    @Param({"10", "500", "5000"})
+    public int entries;
+
+    private Vault _vault;
+    private JSONObject _obj;
+
+    @Setup
+    public void setup() {
+        _vault = Fixtures.createVault(entries);
+        _obj = _vault.toJson();
+    }
+
+    @Benchmark
+    public Vault fromJson() throws VaultException {
+        return Vault.fromJson(_obj);
+    }
+
+    @Benchmark
+    public JSONObject toJson() {
+        return _vault.toJson();
+    }
+}
@@ -0,0 +1,47 @@
+package com.beemdevelopment.aegis.vault;
+
+import com.beemdevelopment.aegis.Fixtures;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VaultFileBenchmark {
+    @Param({"10", "500", "5000"})
+    public int entries;
+
+    private VaultFileCredentials _creds;
+    private JSONObject _obj;
+    private VaultFile _file;
+
+    @Setup
+    public void setup() throws VaultFileException {
+        _creds = new VaultFileCredentials();
+        _obj = Fixtures.createVault(entries).toJson();
+        _file = new VaultFile();
+        _file.setContent(_obj, _creds);
+    }
+
+    @Benchmark
+    public VaultFile setContent() throws VaultFileException {
+        VaultFile file = new VaultFile();
+        file.setContent(_obj, _creds);
+        return file;
+    }
+
+    @Benchmark
+    public JSONObject getContent() throws VaultFileException {
+        return _file.getContent(_creds);
+    }
+}
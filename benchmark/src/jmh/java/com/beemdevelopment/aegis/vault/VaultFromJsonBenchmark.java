@@ -0,0 +1,42 @@
+package com.beemdevelopment.aegis.vault;
+
+import com.beemdevelopment.aegis.Fixtures;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing the entries of a vault one by one to parsing them in parallel, to find the
+ * number of entries at which the latter starts to pay off (see Vault.PARALLEL_THRESHOLD).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VaultFromJsonBenchmark {
+    @Param({"16", "64", "128", "256", "512", "1024", "4096"})
+    public int entries;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private JSONObject _obj;
+
+    @Setup
+    public void setup() {
+        _obj = Fixtures.createVault(entries).toJson();
+    }
+
+    @Benchmark
+    public Vault fromJson() throws VaultException {
+        return Vault.fromJson(_obj, null, parallel ? 0 : Integer.MAX_VALUE);
+    }
+}
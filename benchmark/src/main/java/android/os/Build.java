@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * A stand-in for the framework class on the JVM. The app only uses it to work around
+ * problems on old API levels, so this reports the highest API level that the app targets.
+ */
+public class Build {
+    private Build() {
+
+    }
+
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.S;
+    }
+
+    public static class VERSION_CODES {
+        public static final int KITKAT = 19;
+        public static final int S = 31;
+    }
+}